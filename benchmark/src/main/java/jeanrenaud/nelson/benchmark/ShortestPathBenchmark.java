@@ -0,0 +1,192 @@
+package jeanrenaud.nelson.benchmark;
+
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import graph.core.impl.SimpleWeightedEdgeFactory;
+import graph.core.impl.StronglyConnectedComponents;
+import graph.reader.CartesianGraphReader;
+import jeanrenaud.nelson.comparator.ShortestPathAlgorithmComparator;
+import jeanrenaud.nelson.dijkstra.Path;
+import jeanrenaud.nelson.dijkstra.ShortestPathAlgorithm;
+import jeanrenaud.nelson.graph.EuclideanDistance;
+import jeanrenaud.nelson.graph.Node;
+import jeanrenaud.nelson.graph.NodeFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the shortest path algorithms on the graphs of the data folder.
+ * Queries are random pairs of nodes reaching each other, grouped by the straight line distance between the two nodes
+ * relative to the diagonal of the graph. Each invocation runs the next query of a fixed set, cycling through it.
+ *
+ * The data folder is "data" or "../data", or the value of the property benchmark.data
+ * (java -jar benchmarks.jar -jvmArgsAppend -Dbenchmark.data=...).
+ * @author Nelson Jeanrenaud
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx2g")
+public class ShortestPathBenchmark {
+    /** Number of queries of each set. */
+    private static final int NB_QUERIES = 512;
+    /** Seed of the queries, the same for every algorithm. */
+    private static final long SEED = 20220404;
+
+    /** Name of the algorithm, see {@link ShortestPathAlgorithmComparator#getAlgorithmNames()}. */
+    @Param({"dijkstra", "dijkstra-radix", "dijkstra-dial", "bidirectional", "concurrent-bidirectional", "astar",
+            "bidirectional-astar", "ch", "alt", "hub-labels", "arc-flags", "overlay"})
+    public String algorithm;
+
+    /** Graph file of the data folder, without extension. */
+    @Param({"R10000_1", "R50000_1"})
+    public String graph;
+
+    /** Distance between the source and the target. */
+    @Param({"SHORT", "MEDIUM", "LONG"})
+    public DistanceClass distance;
+
+    /** Algorithm under test. */
+    private ShortestPathAlgorithm shortestPathAlgorithm;
+    /** Source and target of each query. */
+    private Node[] sources;
+    private Node[] targets;
+    /** Index of the next query. */
+    private int next;
+
+    /**
+     * Distance between the source and the target of a query, as a fraction of the diagonal of the graph.
+     */
+    public enum DistanceClass {
+        SHORT(0, 0.1), MEDIUM(0.1, 0.3), LONG(0.3, Double.POSITIVE_INFINITY);
+
+        /** Bounds of the fraction of the diagonal, the upper one is excluded. */
+        private final double min;
+        private final double max;
+
+        DistanceClass(double min, double max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * @param fraction distance as a fraction of the diagonal.
+         * @return true if the distance belongs to this class.
+         */
+        boolean contains(double fraction) {
+            return fraction >= min && fraction < max;
+        }
+    }
+
+    /**
+     * Load the graph, create the algorithm (with its preprocessing) and draw the queries.
+     * @throws IOException if the graph can't be read.
+     * @throws IllegalStateException if not enough queries of the distance class were found.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Digraph<Node, SimpleWeightedEdge<Node>> digraph = new CartesianGraphReader<>(
+                new NodeFactory(),
+                new SimpleWeightedEdgeFactory<>(new EuclideanDistance<>()),
+                new EuclideanDistance<>(),
+                new File(dataFolder(), graph + ".txt").getPath()
+        ).graph();
+        shortestPathAlgorithm = ShortestPathAlgorithmComparator.createAlgorithm(algorithm, digraph);
+
+        List<Node> nodes = digraph.getVertices();
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (Node node : nodes) {
+            minX = Math.min(minX, node.getX());
+            maxX = Math.max(maxX, node.getX());
+            minY = Math.min(minY, node.getY());
+            maxY = Math.max(maxY, node.getY());
+        }
+        double diagonal = Math.max(1, Math.hypot(maxX - minX, maxY - minY));
+
+        StronglyConnectedComponents components = digraph.getStronglyConnectedComponents();
+        Random random = new Random(SEED);
+        sources = new Node[NB_QUERIES];
+        targets = new Node[NB_QUERIES];
+        int found = 0;
+        for (long attempt = 0; found < NB_QUERIES && attempt < 1000L * NB_QUERIES; attempt++) {
+            Node source = nodes.get(random.nextInt(nodes.size()));
+            Node target = nodes.get(random.nextInt(nodes.size()));
+            double fraction = Math.hypot(source.getX() - target.getX(), source.getY() - target.getY()) / diagonal;
+            if (distance.contains(fraction) && components.isStronglyConnected(source.id(), target.id())) {
+                sources[found] = source;
+                targets[found] = target;
+                found++;
+            }
+        }
+        if (found < NB_QUERIES) {
+            throw new IllegalStateException("Not enough " + distance + " queries in " + graph);
+        }
+        next = 0;
+    }
+
+    /**
+     * Release the threads of the algorithm, if it owns some.
+     * @throws Exception if the algorithm can't be closed.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (shortestPathAlgorithm instanceof AutoCloseable) {
+            ((AutoCloseable) shortestPathAlgorithm).close();
+        }
+    }
+
+    /**
+     * Search the shortest path of the next query and build it.
+     * @return the path.
+     */
+    @Benchmark
+    public Path query() {
+        int i = next;
+        next = (i + 1) % NB_QUERIES;
+        shortestPathAlgorithm.run(sources[i], targets[i]);
+        return shortestPathAlgorithm.getShortestPath();
+    }
+
+    /**
+     * Search the shortest path of the next query without building it.
+     * @return the number of iterations of the search.
+     */
+    @Benchmark
+    public long search() {
+        int i = next;
+        next = (i + 1) % NB_QUERIES;
+        shortestPathAlgorithm.run(sources[i], targets[i]);
+        return shortestPathAlgorithm.getIteration();
+    }
+
+    /**
+     * @return the folder containing the graph files.
+     */
+    private static File dataFolder() {
+        String property = System.getProperty("benchmark.data");
+        if (property != null) {
+            return new File(property);
+        }
+        File local = new File("data");
+        return local.isDirectory() ? local : new File("../data");
+    }
+}
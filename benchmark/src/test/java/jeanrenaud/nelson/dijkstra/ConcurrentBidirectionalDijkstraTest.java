@@ -0,0 +1,153 @@
+package jeanrenaud.nelson.dijkstra;
+
+import graph.core.impl.CompactAdjacency;
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import graph.core.impl.SimpleWeightedEdgeFactory;
+import graph.reader.CartesianGraphReader;
+import jeanrenaud.nelson.graph.EuclideanDistance;
+import jeanrenaud.nelson.graph.Node;
+import jeanrenaud.nelson.graph.NodeFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compare the concurrent bidirectional search with Dijkstra on random graphs.
+ * @author Nelson Jeanrenaud
+ */
+class ConcurrentBidirectionalDijkstraTest {
+    /** Number of queries on each graph. */
+    private static final int NB_QUERIES = 500;
+
+    @Test
+    void sameDistancesAsDijkstraOnSparseGraphs() throws IOException {
+        Random random = new Random(20220404);
+        int nbUnreachable = 0;
+        for (int i = 0; i < 20; i++) {
+            nbUnreachable += compareWithDijkstra(randomGraph(random, 50 + random.nextInt(500), 1.5), random);
+        }
+        // Sparse random graphs are not strongly connected, the unreachable pairs are checked too
+        assertTrue(nbUnreachable > 0);
+    }
+
+    @Test
+    void sameDistancesAsDijkstraOnDenseGraphs() throws IOException {
+        Random random = new Random(42);
+        for (int i = 0; i < 5; i++) {
+            compareWithDijkstra(randomGraph(random, 2000, 4), random);
+        }
+    }
+
+    @Test
+    void emptyPathFromANodeToItself() throws IOException {
+        Digraph<Node, SimpleWeightedEdge<Node>> graph = randomGraph(new Random(1), 100, 3);
+        try (ConcurrentBidirectionalDijkstra algorithm = new ConcurrentBidirectionalDijkstra(graph)) {
+            for (Node node : graph.getVertices()) {
+                algorithm.run(node, node);
+                Path path = algorithm.getShortestPath();
+                assertNotNull(path);
+                assertEquals(0, path.totalWeight());
+                assertEquals(0, path.getNumberOfEdges());
+            }
+        }
+    }
+
+    @Test
+    void runAfterCloseThrows() throws IOException {
+        Digraph<Node, SimpleWeightedEdge<Node>> graph = randomGraph(new Random(2), 10, 2);
+        ConcurrentBidirectionalDijkstra algorithm = new ConcurrentBidirectionalDijkstra(graph);
+        algorithm.close();
+        Node node = graph.getVertices().get(0);
+        assertThrows(IllegalStateException.class, () -> algorithm.run(node, node));
+    }
+
+    /**
+     * Run random queries, with a node to itself every ten queries, and check the distance and the edges of every
+     * path against a one-to-all Dijkstra.
+     * @return the number of unreachable queries.
+     */
+    private static int compareWithDijkstra(Digraph<Node, SimpleWeightedEdge<Node>> graph, Random random) {
+        List<Node> nodes = graph.getVertices();
+        CompactAdjacency adjacency = graph.getCompactAdjacency(SimpleWeightedEdge.WEIGHER);
+        Dijkstra reference = new Dijkstra(graph);
+        int nbUnreachable = 0;
+        try (ConcurrentBidirectionalDijkstra algorithm = new ConcurrentBidirectionalDijkstra(graph)) {
+            for (int i = 0; i < NB_QUERIES; i++) {
+                Node source = nodes.get(random.nextInt(nodes.size()));
+                Node target = i % 10 == 0 ? source : nodes.get(random.nextInt(nodes.size()));
+                reference.run(source, null);
+                long expected = reference.getDistance(target.id());
+                algorithm.run(source, target);
+                Path path = algorithm.getShortestPath();
+                if (expected == SearchWorkspace.UNREACHED) {
+                    assertNull(path, source.id() + " -> " + target.id());
+                    nbUnreachable++;
+                    continue;
+                }
+                assertNotNull(path, source.id() + " -> " + target.id());
+                assertEquals(expected, path.totalWeight(), source.id() + " -> " + target.id());
+                if (source == target) {
+                    assertEquals(0, path.getNumberOfEdges());
+                    continue;
+                }
+                assertEquals(source.id(), path.getNodeId(0));
+                assertEquals(target.id(), path.getNodeId(path.getNumberOfEdges()));
+                for (int edge = 0; edge < path.getNumberOfEdges(); edge++) {
+                    assertTrue(hasEdge(adjacency, path.getNodeId(edge), path.getNodeId(edge + 1),
+                            path.getEdgeWeight(edge)), "missing edge in " + source.id() + " -> " + target.id());
+                }
+            }
+        }
+        return nbUnreachable;
+    }
+
+    private static boolean hasEdge(CompactAdjacency adjacency, int from, int to, long weight) {
+        for (int edge = adjacency.begin(from); edge < adjacency.end(from); edge++) {
+            if (adjacency.target(edge) == to && adjacency.weight(edge) == weight) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Build a graph of random nodes of a 1000 x 1000 square, each with a random number of successors.
+     * @param nbNodes number of nodes.
+     * @param degree average number of successors of a node.
+     */
+    private static Digraph<Node, SimpleWeightedEdge<Node>> randomGraph(Random random, int nbNodes, double degree)
+            throws IOException {
+        StringBuilder file = new StringBuilder().append(nbNodes).append('\n');
+        for (int id = 0; id < nbNodes; id++) {
+            file.append(id).append(' ').append(random.nextInt(1000)).append(' ').append(random.nextInt(1000))
+                    .append('\n');
+        }
+        for (int id = 0; id < nbNodes; id++) {
+            file.append(id);
+            int nbSuccessors = (int) (random.nextDouble() * 2 * degree);
+            for (int i = 0; i < nbSuccessors; i++) {
+                file.append(' ').append(random.nextInt(nbNodes));
+            }
+            file.append('\n');
+        }
+        return new CartesianGraphReader<>(
+                new NodeFactory(),
+                new SimpleWeightedEdgeFactory<>(new EuclideanDistance<>()),
+                new EuclideanDistance<>(),
+                new InputStreamReader(new ByteArrayInputStream(file.toString().getBytes(StandardCharsets.US_ASCII)),
+                        StandardCharsets.US_ASCII)
+        ).graph();
+    }
+}
@@ -0,0 +1,157 @@
+package graph.core.impl;
+
+import java.util.Arrays;
+
+/**
+ * Successor lists stored in compressed sparse row (CSR) format
+ *
+ * Edges of vertex v are the indices between {@link #begin(int)} and {@link #end(int)} (exclusive),
+ * an edge index is used to look up its destination and weight in flat arrays
+ *
+ * @author Nelson Jeanrenaud
+ */
+public final class CompactAdjacency {
+  /** First edge index of each vertex, plus the total number of edges at the end */
+  private final int[] offsets;
+
+  /** Destination vertex of each edge */
+  private final int[] targets;
+
+  /** Weight of each edge */
+  private final long[] weights;
+
+  /**
+   * @param offsets First edge index of each vertex followed by the number of edges (length nVertices + 1)
+   * @param targets Destination vertex of each edge
+   * @param weights Weight of each edge
+   * @throws IllegalArgumentException if the array lengths are inconsistent
+   */
+  public CompactAdjacency(final int[] offsets, final int[] targets, final long[] weights) {
+    if (offsets.length == 0 || offsets[0] != 0)
+      throw new IllegalArgumentException("offsets must start with 0");
+    if (targets.length != weights.length || offsets[offsets.length - 1] != targets.length)
+      throw new IllegalArgumentException("offsets, targets and weights lengths do not match");
+
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+  }
+
+  /**
+   * Builds the CSR arrays from an unordered list of edges. Edges leaving the same vertex
+   * keep their relative order
+   * @param nVertices Number of vertices
+   * @param nEdges Number of edges to read from the arrays
+   * @param sources Origin vertex of each edge
+   * @param targets Destination vertex of each edge
+   * @param weights Weight of each edge
+   * @return the compact adjacency
+   */
+  public static CompactAdjacency fromEdges(final int nVertices, final int nEdges,
+                                           final int[] sources, final int[] targets, final long[] weights) {
+    final int[] offsets = new int[nVertices + 1];
+    for (int e = 0; e < nEdges; ++e)
+      ++offsets[sources[e] + 1];
+    for (int v = 0; v < nVertices; ++v)
+      offsets[v + 1] += offsets[v];
+
+    final int[] next = Arrays.copyOf(offsets, nVertices);
+    final int[] sortedTargets = new int[nEdges];
+    final long[] sortedWeights = new long[nEdges];
+    for (int e = 0; e < nEdges; ++e) {
+      final int slot = next[sources[e]]++;
+      sortedTargets[slot] = targets[e];
+      sortedWeights[slot] = weights[e];
+    }
+    return new CompactAdjacency(offsets, sortedTargets, sortedWeights);
+  }
+
+  /**
+   * Builds the transpose: every edge from u to v becomes an edge from v to u with the same weight.
+   * Edges entering the same vertex keep their relative order
+   * @return the reversed adjacency
+   */
+  public CompactAdjacency transpose() {
+    final int nEdges = getNEdges();
+    final int[] sources = new int[nEdges];
+    for (int v = 0; v < getNVertices(); ++v)
+      Arrays.fill(sources, offsets[v], offsets[v + 1], v);
+    return fromEdges(getNVertices(), nEdges, targets, sources, weights);
+  }
+
+  /**
+   * Same edges with other weights. The offsets and targets are shared, not copied
+   * @param weights Weight of each edge, indexed like this adjacency
+   * @return the adjacency with the given weights
+   * @throws IllegalArgumentException if there is not one weight per edge
+   */
+  public CompactAdjacency withWeights(final long[] weights) {
+    return new CompactAdjacency(offsets, targets, weights);
+  }
+
+  /**
+   * Hash of the offsets, targets and weights, e.g. to check that data computed on an adjacency
+   * and saved to a file still matches it
+   * @return 64-bit FNV-1a hash of the arrays
+   */
+  public long fingerprint() {
+    long hash = 0xcbf29ce484222325L;
+    for (int offset : offsets)
+      hash = (hash ^ offset) * 0x100000001b3L;
+    for (int target : targets)
+      hash = (hash ^ target) * 0x100000001b3L;
+    for (long weight : weights)
+      hash = (hash ^ weight) * 0x100000001b3L;
+    return hash;
+  }
+
+  /** @return Number of vertices */
+  public int getNVertices() {
+    return offsets.length - 1;
+  }
+
+  /** @return Number of edges */
+  public int getNEdges() {
+    return targets.length;
+  }
+
+  /**
+   * @param vertex Vertex id
+   * @return Index of the first edge leaving the vertex
+   */
+  public int begin(final int vertex) {
+    return offsets[vertex];
+  }
+
+  /**
+   * @param vertex Vertex id
+   * @return Index following the last edge leaving the vertex
+   */
+  public int end(final int vertex) {
+    return offsets[vertex + 1];
+  }
+
+  /**
+   * @param vertex Vertex id
+   * @return Number of edges leaving the vertex
+   */
+  public int degree(final int vertex) {
+    return offsets[vertex + 1] - offsets[vertex];
+  }
+
+  /**
+   * @param edge Edge index
+   * @return Destination vertex of the edge
+   */
+  public int target(final int edge) {
+    return targets[edge];
+  }
+
+  /**
+   * @param edge Edge index
+   * @return Weight of the edge
+   */
+  public long weight(final int edge) {
+    return weights[edge];
+  }
+}
@@ -2,10 +2,13 @@ package graph.core.impl;
 
 import graph.core.Edge;
 import graph.core.EdgeFactory;
+import graph.core.EdgeWeighter;
 import graph.core.Vertex;
 import graph.core.VertexFactory;
 
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -15,6 +18,12 @@ import java.util.stream.Stream;
  * Graph uses underlying unmodifiable collections but isn't immutable though
  * since this class has no control over the used vertex and edge types
  *
+ * Successors are either stored as lists of edges or, when built in compact mode,
+ * only as a {@link CompactAdjacency} from which edges are built on demand
+ *
+ * Predecessors are stored the same way, they are built at build time if requested
+ * to the builder and on first request otherwise
+ *
  * @author Henrik Akesson, Thibaud Franchetti
  */
 public final class Digraph<V extends Vertex, E extends Edge<V>> {
@@ -27,10 +36,13 @@ public final class Digraph<V extends Vertex, E extends Edge<V>> {
    * @param <EData> Additional data type delegated to an {@link EdgeFactory}
    */
   public static class Builder<V extends Vertex, E extends Edge<V>, VData, EData> {
+    /** Initial capacity of the edge arrays in compact mode */
+    private static final int INITIAL_EDGE_CAPACITY = 16;
+
     /** List of vertices */
     private final ArrayList<V> vertices;
 
-    /** List of edges */
+    /** List of edges, null in compact mode */
     private final List<List<E>> edges;
 
     /** Factory for building vertices */
@@ -39,6 +51,23 @@ public final class Digraph<V extends Vertex, E extends Edge<V>> {
     /** Factory for building edges */
     private final EdgeFactory<V, E, EData> edgeFactory;
 
+    /** Weighting function used in compact mode, null otherwise */
+    private final EdgeWeighter<? super V> weighter;
+
+    /** Origin, destination and weight of each edge in compact mode */
+    private int[] edgeSources;
+    private int[] edgeTargets;
+    private long[] edgeWeights;
+
+    /** Number of edges added in compact mode */
+    private int nEdges;
+
+    /** Successors given at construction, null if the edges are added one by one */
+    private final CompactAdjacency adjacency;
+
+    /** true to build the predecessors with the graph */
+    private boolean storePredecessors;
+
     /**
      * @param vertexFactory Factory for building vertices
      * @param edgeFactory Factory for building edges
@@ -47,18 +76,73 @@ public final class Digraph<V extends Vertex, E extends Edge<V>> {
     public Builder(final VertexFactory<V, VData> vertexFactory,
                    final EdgeFactory<V, E, EData> edgeFactory,
                    final int nVertices) {
+      this(vertexFactory, edgeFactory, nVertices, null);
+    }
+
+    /**
+     * Builder for a graph in compact mode: edges are stored in a {@link CompactAdjacency}
+     * and no edge object is kept. Edges are rebuilt with the factory (without additional data)
+     * when a successor list is requested
+     * @param vertexFactory Factory for building vertices
+     * @param edgeFactory Factory for building edges
+     * @param nVertices Number of vertices in the graph
+     * @param weighter Weighting function computing the stored edge weights, null to store edge lists
+     */
+    public Builder(final VertexFactory<V, VData> vertexFactory,
+                   final EdgeFactory<V, E, EData> edgeFactory,
+                   final int nVertices,
+                   final EdgeWeighter<? super V> weighter) {
+      this(vertexFactory, edgeFactory, nVertices, weighter, null);
+    }
+
+    /**
+     * Builder for a graph in compact mode whose successors are already known, e.g. loaded
+     * from a snapshot. Only the vertices have to be added, {@link #addEdge(int, int)} is not supported
+     * @param vertexFactory Factory for building vertices
+     * @param edgeFactory Factory for building edges
+     * @param adjacency Successors of the graph in CSR format
+     */
+    public Builder(final VertexFactory<V, VData> vertexFactory,
+                   final EdgeFactory<V, E, EData> edgeFactory,
+                   final CompactAdjacency adjacency) {
+      this(vertexFactory, edgeFactory, adjacency.getNVertices(), null, adjacency);
+    }
+
+    /**
+     * @param vertexFactory Factory for building vertices
+     * @param edgeFactory Factory for building edges
+     * @param nVertices Number of vertices in the graph
+     * @param weighter Weighting function computing the stored edge weights, null to store edge lists
+     * @param adjacency Successors of the graph, null if the edges are added one by one
+     */
+    private Builder(final VertexFactory<V, VData> vertexFactory,
+                    final EdgeFactory<V, E, EData> edgeFactory,
+                    final int nVertices,
+                    final EdgeWeighter<? super V> weighter,
+                    final CompactAdjacency adjacency) {
       this.vertexFactory = vertexFactory;
       this.edgeFactory = edgeFactory;
+      this.weighter = weighter;
+      this.adjacency = adjacency;
 
       if (nVertices <= 0)
         throw new IllegalArgumentException("nVertices cannot be <= 0");
 
       this.vertices = new ArrayList<>(nVertices);
-      this.edges = new ArrayList<>(nVertices);
-
-      for (int i = 0; i < nVertices; ++i) {
+      for (int i = 0; i < nVertices; ++i)
         this.vertices.add(null);
-        edges.add(new LinkedList<>());
+
+      if (adjacency != null) {
+        this.edges = null;
+      } else if (weighter == null) {
+        this.edges = new ArrayList<>(nVertices);
+        for (int i = 0; i < nVertices; ++i)
+          edges.add(new LinkedList<>());
+      } else {
+        this.edges = null;
+        this.edgeSources = new int[INITIAL_EDGE_CAPACITY];
+        this.edgeTargets = new int[INITIAL_EDGE_CAPACITY];
+        this.edgeWeights = new long[INITIAL_EDGE_CAPACITY];
       }
     }
 
@@ -97,17 +181,34 @@ public final class Digraph<V extends Vertex, E extends Edge<V>> {
      * Builds an edge and adds it to the graph
      * @param from Id of origin vertex
      * @param to Id of destination vertex
-     * @param additionalData Additional data delegated to the {@link EdgeFactory}
+     * @param additionalData Additional data delegated to the {@link EdgeFactory},
+     *                       ignored in compact mode
      * @throws IllegalArgumentException if vertices of id from or to aren't set yet
      * @throws IllegalArgumentException if from or to invalid
+     * @throws IllegalStateException if the successors were given at construction
      */
     public void addEdge(final int from, final int to, final EData additionalData) {
+      if (adjacency != null)
+        throw new IllegalStateException("Edges are given by the adjacency");
       assertValidId(from);
       assertValidId(to);
       if (vertices.get(from) == null || vertices.get(to) == null)
         throw new IllegalArgumentException("Vertex.ices not set");
 
-      edges.get(from).add(edgeFactory.makeEdge(vertices.get(from), vertices.get(to), additionalData));
+      if (edges == null) {
+        addCompactEdge(from, to, weighter.weight(vertices.get(from), vertices.get(to)));
+      } else {
+        edges.get(from).add(edgeFactory.makeEdge(vertices.get(from), vertices.get(to), additionalData));
+      }
+    }
+
+    /**
+     * Builds the predecessors of each vertex with the graph (predecessor lists, or a
+     * {@link CompactAdjacency} in compact mode) instead of on their first request
+     * @param storePredecessors true to build the predecessors with the graph
+     */
+    public void setStorePredecessors(final boolean storePredecessors) {
+      this.storePredecessors = storePredecessors;
     }
 
     /**
@@ -118,10 +219,43 @@ public final class Digraph<V extends Vertex, E extends Edge<V>> {
       if (Stream.of(vertices).anyMatch(Objects::isNull))
         throw new RuntimeException("Cannot build graph, missing vertices...");
 
-      return new Digraph<>(
-        Collections.unmodifiableList(vertices),
-        edges.stream().map(Collections::unmodifiableList).collect(Collectors.toUnmodifiableList())
-      );
+      final Digraph<V, E> graph;
+      if (edges == null) {
+        graph = new Digraph<>(
+          Collections.unmodifiableList(vertices),
+          adjacency != null
+            ? adjacency
+            : CompactAdjacency.fromEdges(vertices.size(), nEdges, edgeSources, edgeTargets, edgeWeights),
+          (from, to) -> edgeFactory.makeEdge(from, to, null)
+        );
+      } else {
+        graph = new Digraph<>(
+          Collections.unmodifiableList(vertices),
+          edges.stream().map(Collections::unmodifiableList).collect(Collectors.toUnmodifiableList())
+        );
+      }
+      if (storePredecessors)
+        graph.buildPredecessors();
+      return graph;
+    }
+
+    /**
+     * Appends an edge to the compact mode arrays
+     * @param from Id of origin vertex
+     * @param to Id of destination vertex
+     * @param weight Edge weight
+     */
+    private void addCompactEdge(final int from, final int to, final long weight) {
+      if (nEdges == edgeSources.length) {
+        final int capacity = 2 * nEdges;
+        edgeSources = Arrays.copyOf(edgeSources, capacity);
+        edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+        edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+      }
+      edgeSources[nEdges] = from;
+      edgeTargets[nEdges] = to;
+      edgeWeights[nEdges] = weight;
+      ++nEdges;
     }
 
     /**
@@ -136,17 +270,46 @@ public final class Digraph<V extends Vertex, E extends Edge<V>> {
 
   /** Vertices **/
   private final List<V> vertices;
-  /** Successor lists. */
+  /** Successor lists, null in compact mode. */
   private final List<List<E>> successorLists;
+  /** Builds an edge between two vertices in compact mode, null otherwise. */
+  private final BiFunction<V, V, E> edgeMaker;
+  /** Successors in CSR format, built on first request if the graph stores lists. */
+  private CompactAdjacency compactAdjacency;
+  /** Weigher of the successors in CSR format, the one of their first request. */
+  private ToLongFunction<? super E> compactWeigher;
+  /** Predecessor lists, built on first request if the graph stores lists, null in compact mode. */
+  private List<List<E>> predecessorLists;
+  /** Predecessors in CSR format, the transpose of the successors, built on first request. */
+  private CompactAdjacency predecessorAdjacency;
+  /** Strongly connected components, computed on first request. */
+  private StronglyConnectedComponents components;
 
   /**
-   * Constructs a new directed graph with given number of vertices.
+   * Constructs a new directed graph storing successor lists.
    *
-   * @param vertices Number of vertices of the graph.
+   * @param vertices Vertices of the graph.
+   * @param successorLists Successor list of each vertex.
    */
   private Digraph(final List<V> vertices, final List<List<E>> successorLists) {
     this.vertices = vertices;
     this.successorLists = successorLists;
+    this.edgeMaker = null;
+  }
+
+  /**
+   * Constructs a new directed graph in compact mode.
+   *
+   * @param vertices Vertices of the graph.
+   * @param compactAdjacency Successors in CSR format.
+   * @param edgeMaker Builds the edge between two vertices.
+   */
+  private Digraph(final List<V> vertices, final CompactAdjacency compactAdjacency,
+                  final BiFunction<V, V, E> edgeMaker) {
+    this.vertices = vertices;
+    this.successorLists = null;
+    this.compactAdjacency = compactAdjacency;
+    this.edgeMaker = edgeMaker;
   }
 
   /** @return Number of vertices. */
@@ -156,13 +319,43 @@ public final class Digraph<V extends Vertex, E extends Edge<V>> {
 
 
   /**
+   * In compact mode the edges are built on each call.
+   *
    * @param vertex Vertex index.
    *
    * @return Successor list of given vertex.
    * @throws ArrayIndexOutOfBoundsException
    */
   public List<E> getSuccessorList(final int vertex) {
-    return successorLists.get(vertex);
+    if (successorLists != null)
+      return successorLists.get(vertex);
+
+    final V from = vertices.get(vertex);
+    final List<E> successors = new ArrayList<>(compactAdjacency.degree(vertex));
+    for (int e = compactAdjacency.begin(vertex); e < compactAdjacency.end(vertex); ++e)
+      successors.add(edgeMaker.apply(from, vertices.get(compactAdjacency.target(e))));
+    return Collections.unmodifiableList(successors);
+  }
+
+  /**
+   * In compact mode the edges are built on each call. The predecessors are computed on the
+   * first call unless the graph was built with them.
+   *
+   * @param vertex Vertex index.
+   *
+   * @return Edges entering the given vertex.
+   * @throws ArrayIndexOutOfBoundsException
+   */
+  public List<E> getPredecessorList(final int vertex) {
+    buildPredecessors();
+    if (predecessorLists != null)
+      return predecessorLists.get(vertex);
+
+    final V to = vertices.get(vertex);
+    final List<E> predecessors = new ArrayList<>(predecessorAdjacency.degree(vertex));
+    for (int e = predecessorAdjacency.begin(vertex); e < predecessorAdjacency.end(vertex); ++e)
+      predecessors.add(edgeMaker.apply(vertices.get(predecessorAdjacency.target(e)), to));
+    return Collections.unmodifiableList(predecessors);
   }
 
   /**
@@ -172,4 +365,117 @@ public final class Digraph<V extends Vertex, E extends Edge<V>> {
     return vertices;
   }
 
+  /**
+   * @return true if the graph was built in compact mode and stores no edge objects
+   */
+  public boolean isCompact() {
+    return successorLists == null;
+  }
+
+  /**
+   * Successors in CSR format. In compact mode the stored adjacency is returned, otherwise the
+   * adjacency is built from the successor lists on the first call and cached. The weigher of the
+   * first call is bound to the adjacency, in compact mode it names the weights computed when the
+   * graph was built. Later calls must pass the same weigher instance, e.g. a shared constant such
+   * as {@link SimpleWeightedEdge#WEIGHER}
+   *
+   * @param weigher Extracts the weight of an edge
+   * @return Successors in CSR format
+   * @throws NullPointerException if the weigher is null
+   * @throws IllegalStateException if the adjacency was requested with another weigher
+   */
+  public synchronized CompactAdjacency getCompactAdjacency(final ToLongFunction<? super E> weigher) {
+    Objects.requireNonNull(weigher, "weigher cannot be null");
+    if (compactWeigher == null) {
+      if (compactAdjacency == null)
+        compactAdjacency = buildAdjacency(weigher);
+      compactWeigher = weigher;
+    } else if (weigher != compactWeigher) {
+      throw new IllegalStateException("adjacency already requested with another weigher");
+    }
+    return compactAdjacency;
+  }
+
+  /**
+   * Predecessors in CSR format: the edges of a vertex are the edges entering it, their target
+   * is their origin in the graph. Built from {@link #getCompactAdjacency(ToLongFunction)} on
+   * the first call and cached, the weigher is checked the same way
+   *
+   * @param weigher Extracts the weight of an edge
+   * @return Predecessors in CSR format
+   * @throws NullPointerException if the weigher is null
+   * @throws IllegalStateException if the adjacency was requested with another weigher
+   */
+  public synchronized CompactAdjacency getPredecessorAdjacency(final ToLongFunction<? super E> weigher) {
+    final CompactAdjacency successors = getCompactAdjacency(weigher);
+    if (predecessorAdjacency == null)
+      predecessorAdjacency = successors.transpose();
+    return predecessorAdjacency;
+  }
+
+  /**
+   * Builds the predecessors if they are not built yet: the predecessor lists if the graph
+   * stores lists, the predecessors in CSR format in compact mode
+   */
+  private synchronized void buildPredecessors() {
+    if (successorLists == null) {
+      if (predecessorAdjacency == null)
+        predecessorAdjacency = compactAdjacency.transpose();
+      return;
+    }
+    if (predecessorLists != null)
+      return;
+
+    final List<List<E>> predecessors = new ArrayList<>(vertices.size());
+    for (int v = 0; v < vertices.size(); ++v)
+      predecessors.add(new ArrayList<>());
+    for (List<E> successors : successorLists)
+      for (E edge : successors)
+        predecessors.get(edge.to().id()).add(edge);
+    predecessorLists = predecessors.stream()
+      .map(Collections::unmodifiableList)
+      .collect(Collectors.toUnmodifiableList());
+  }
+
+  /**
+   * Builds successors in CSR format from the successor lists
+   *
+   * @param weigher Extracts the weight of an edge
+   * @return Successors in CSR format
+   */
+  private CompactAdjacency buildAdjacency(final ToLongFunction<? super E> weigher) {
+    int nEdges = 0;
+    for (List<E> successors : successorLists)
+      nEdges += successors.size();
+
+    final int[] offsets = new int[vertices.size() + 1];
+    final int[] targets = new int[nEdges];
+    final long[] weights = new long[nEdges];
+    int e = 0;
+    for (int v = 0; v < vertices.size(); ++v) {
+      offsets[v] = e;
+      for (E edge : successorLists.get(v)) {
+        targets[e] = edge.to().id();
+        weights[e] = weigher.applyAsLong(edge);
+        ++e;
+      }
+    }
+    offsets[vertices.size()] = e;
+    return new CompactAdjacency(offsets, targets, weights);
+  }
+
+  /**
+   * Strongly connected components, computed on the first call and cached
+   *
+   * @return Strongly connected components of the graph
+   */
+  public synchronized StronglyConnectedComponents getStronglyConnectedComponents() {
+    if (components == null) {
+      // Only the topology is needed, the weightless adjacency built from the lists is not kept
+      components = new StronglyConnectedComponents(
+        compactAdjacency != null ? compactAdjacency : buildAdjacency(edge -> 0));
+    }
+    return components;
+  }
+
 }
@@ -0,0 +1,257 @@
+package graph.core.impl;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Mutable weights of the edges of a compact adjacency, the structure of the graph stays the same
+ *
+ * The weights are published as immutable, versioned snapshots. An update copies the current
+ * weights, applies a batch of changes and publishes the copy in a single volatile write
+ * (copy-on-write): a reader takes the current snapshot once and keeps a consistent view of the
+ * weights however many updates are published meanwhile, old snapshots are reclaimed once no
+ * reader holds them. Updates are serialized, reads never block
+ *
+ * Edges are identified by their index in the compact adjacency. An edge of weight
+ * {@link #MAX_WEIGHT} is closed, the searches reading the snapshots do not follow it
+ *
+ * @author Nelson Jeanrenaud
+ */
+public final class DynamicEdgeWeights {
+  /**
+   * Largest weight of an edge, it marks the edge as closed. Low enough to keep the sum of the
+   * weights of any path far from overflowing
+   */
+  public static final long MAX_WEIGHT = 1L << 40;
+
+  /** Structure of the graph, with its initial weights */
+  private final CompactAdjacency adjacency;
+
+  /** Predecessors with the index of the successor edge as weight */
+  private final CompactAdjacency predecessorIds;
+
+  /** Current snapshot */
+  private volatile Snapshot current;
+
+  /**
+   * @param adjacency Successors of the graph, their weights are the initial weights
+   * @throws NullPointerException if the adjacency is null
+   * @throws IllegalArgumentException if a weight is negative or larger than {@link #MAX_WEIGHT}
+   */
+  public DynamicEdgeWeights(final CompactAdjacency adjacency) {
+    this.adjacency = Objects.requireNonNull(adjacency, "adjacency cannot be null");
+    final int nEdges = adjacency.getNEdges();
+    final int[] sources = new int[nEdges];
+    final int[] targets = new int[nEdges];
+    final long[] ids = new long[nEdges];
+    final long[] weights = new long[nEdges];
+    for (int v = 0; v < adjacency.getNVertices(); ++v)
+      for (int e = adjacency.begin(v); e < adjacency.end(v); ++e) {
+        sources[e] = v;
+        targets[e] = adjacency.target(e);
+        ids[e] = e;
+        weights[e] = checkWeight(adjacency.weight(e));
+      }
+    this.predecessorIds = CompactAdjacency.fromEdges(adjacency.getNVertices(), nEdges, targets, sources, ids);
+    this.current = new Snapshot(0, weights);
+  }
+
+  /** @return Successors of the graph, with the initial weights */
+  public CompactAdjacency getAdjacency() {
+    return adjacency;
+  }
+
+  /** @return Current weights, never modified afterwards */
+  public Snapshot snapshot() {
+    return current;
+  }
+
+  /** @return Version of the current weights, incremented by each update */
+  public long getVersion() {
+    return current.version;
+  }
+
+  /**
+   * Index of an edge of the graph
+   * @param from Origin vertex
+   * @param to Destination vertex
+   * @return Index of the first edge from the origin to the destination, -1 if there is none
+   */
+  public int findEdge(final int from, final int to) {
+    for (int e = adjacency.begin(from); e < adjacency.end(from); ++e)
+      if (adjacency.target(e) == to)
+        return e;
+    return -1;
+  }
+
+  /**
+   * Changes the weight of a single edge
+   * @param edge Edge index
+   * @param weight New weight
+   * @return the published snapshot
+   * @throws IndexOutOfBoundsException if the edge does not exist
+   * @throws IllegalArgumentException if the weight is negative or larger than {@link #MAX_WEIGHT}
+   */
+  public Snapshot update(final int edge, final long weight) {
+    return update(new int[] {edge}, new long[] {weight}, 1);
+  }
+
+  /**
+   * Changes the weights of a batch of edges, all published at once. When an edge appears several
+   * times its last weight wins
+   * @param edges Edge indices
+   * @param weights New weight of each edge
+   * @param count Number of changes to read from the arrays
+   * @return the published snapshot
+   * @throws IndexOutOfBoundsException if an edge does not exist or count exceeds the arrays
+   * @throws IllegalArgumentException if a weight is negative or larger than {@link #MAX_WEIGHT}
+   */
+  public synchronized Snapshot update(final int[] edges, final long[] weights, final int count) {
+    Objects.checkFromIndexSize(0, count, Math.min(edges.length, weights.length));
+    for (int i = 0; i < count; ++i) {
+      Objects.checkIndex(edges[i], adjacency.getNEdges());
+      checkWeight(weights[i]);
+    }
+    final long[] copy = current.weights.clone();
+    for (int i = 0; i < count; ++i)
+      copy[edges[i]] = weights[i];
+    final Snapshot snapshot = new Snapshot(current.version + 1, copy);
+    current = snapshot;
+    return snapshot;
+  }
+
+  /** @return a new empty batch of changes of these weights */
+  public Batch batch() {
+    return new Batch();
+  }
+
+  private static long checkWeight(final long weight) {
+    if (weight < 0 || weight > MAX_WEIGHT)
+      throw new IllegalArgumentException("weight " + weight + " is not between 0 and " + MAX_WEIGHT);
+    return weight;
+  }
+
+  /**
+   * Immutable weights of a version, with the successors and predecessors of the graph weighted by
+   * them
+   */
+  public final class Snapshot {
+    /** Number of updates before this snapshot */
+    private final long version;
+
+    /** Weight of each edge */
+    private final long[] weights;
+
+    /** Successors weighted by this snapshot */
+    private final CompactAdjacency successors;
+
+    /** Predecessors weighted by this snapshot, built on first use */
+    private volatile CompactAdjacency predecessors;
+
+    private Snapshot(final long version, final long[] weights) {
+      this.version = version;
+      this.weights = weights;
+      this.successors = adjacency.withWeights(weights);
+    }
+
+    /** @return Number of updates before this snapshot */
+    public long getVersion() {
+      return version;
+    }
+
+    /**
+     * @param edge Edge index
+     * @return Weight of the edge in this snapshot
+     */
+    public long weight(final int edge) {
+      return weights[edge];
+    }
+
+    /**
+     * @param edge Edge index
+     * @return true if the edge is closed in this snapshot
+     */
+    public boolean isClosed(final int edge) {
+      return weights[edge] == MAX_WEIGHT;
+    }
+
+    /** @return a copy of the weights, indexed like the compact adjacency */
+    public long[] toArray() {
+      return weights.clone();
+    }
+
+    /** @return Successors of the graph weighted by this snapshot */
+    public CompactAdjacency getAdjacency() {
+      return successors;
+    }
+
+    /**
+     * Predecessors of the graph weighted by this snapshot, in the same order as
+     * {@link CompactAdjacency#transpose()}. Built on the first call
+     * @return Predecessors in CSR format
+     */
+    public CompactAdjacency getPredecessorAdjacency() {
+      CompactAdjacency result = predecessors;
+      if (result == null) {
+        synchronized (this) {
+          result = predecessors;
+          if (result == null) {
+            final long[] reversed = new long[weights.length];
+            for (int e = 0; e < reversed.length; ++e)
+              reversed[e] = weights[(int) predecessorIds.weight(e)];
+            predecessors = result = predecessorIds.withWeights(reversed);
+          }
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Changes collected from a feed and applied together by {@link #commit()}. A batch is not
+   * thread-safe
+   */
+  public final class Batch {
+    private int[] edges = new int[16];
+    private long[] weights = new long[16];
+    private int size;
+
+    private Batch() {
+    }
+
+    /**
+     * Adds a change to the batch
+     * @param edge Edge index
+     * @param weight New weight
+     * @return this batch
+     * @throws IndexOutOfBoundsException if the edge does not exist
+     * @throws IllegalArgumentException if the weight is negative or larger than {@link #MAX_WEIGHT}
+     */
+    public Batch set(final int edge, final long weight) {
+      Objects.checkIndex(edge, adjacency.getNEdges());
+      checkWeight(weight);
+      if (size == edges.length) {
+        edges = Arrays.copyOf(edges, 2 * size);
+        weights = Arrays.copyOf(weights, 2 * size);
+      }
+      edges[size] = edge;
+      weights[size++] = weight;
+      return this;
+    }
+
+    /** @return Number of changes in the batch */
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Publishes the changes in a new snapshot and empties the batch
+     * @return the published snapshot
+     */
+    public Snapshot commit() {
+      final Snapshot snapshot = update(edges, weights, size);
+      size = 0;
+      return snapshot;
+    }
+  }
+}
@@ -3,6 +3,8 @@ package graph.core.impl;
 import graph.core.Edge;
 import graph.core.Vertex;
 
+import java.util.function.ToLongFunction;
+
 /**
  * {@link Edge} implementation describing a weighted edge with a long weight
  * @param <V> Associated vertex type
@@ -10,6 +12,12 @@ import graph.core.Vertex;
  * @author Thibaud Franchetti
  */
 public final class SimpleWeightedEdge<V extends Vertex> implements Edge<V> {
+    /**
+     * Extracts the weight of an edge. A single instance, to be passed to
+     * {@link Digraph#getCompactAdjacency(ToLongFunction)} by every caller
+     */
+    public static final ToLongFunction<SimpleWeightedEdge<?>> WEIGHER = SimpleWeightedEdge::weight;
+
     /** Source vertex */
     private final V from;
 
@@ -0,0 +1,161 @@
+package graph.core.impl;
+
+import java.util.Arrays;
+
+/**
+ * Strongly connected components of a graph, computed with an iterative version of Tarjan's
+ * algorithm so that the depth of the graph is not limited by the call stack
+ *
+ * Components are numbered in reverse topological order: if u reaches v then the component of v
+ * is not greater than the component of u. Together with the weakly connected components this gives
+ * an O(1) test rejecting most unreachable pairs, every unreachable pair when the graph is symmetric
+ *
+ * @author Nelson Jeanrenaud
+ */
+public final class StronglyConnectedComponents {
+  /** Marks a vertex not visited yet */
+  private static final int UNVISITED = -1;
+
+  /** Strongly connected component of each vertex */
+  private final int[] components;
+
+  /** Weakly connected component of each vertex */
+  private final int[] weakComponents;
+
+  /** Number of strongly connected components */
+  private final int nComponents;
+
+  /**
+   * @param adjacency Successors of the graph
+   */
+  public StronglyConnectedComponents(final CompactAdjacency adjacency) {
+    final int nVertices = adjacency.getNVertices();
+    components = new int[nVertices];
+    Arrays.fill(components, UNVISITED);
+
+    final int[] index = new int[nVertices];
+    Arrays.fill(index, UNVISITED);
+    final int[] low = new int[nVertices];
+    // Next edge to explore of each vertex of the depth-first search
+    final int[] nextEdge = new int[nVertices];
+    // Vertices of the depth-first search path and vertices not assigned to a component yet
+    final int[] path = new int[nVertices];
+    final int[] stack = new int[nVertices];
+    int counter = 0;
+    int count = 0;
+
+    for (int root = 0; root < nVertices; ++root) {
+      if (index[root] != UNVISITED)
+        continue;
+      int pathSize = 0;
+      int stackSize = 0;
+      index[root] = low[root] = counter++;
+      nextEdge[root] = adjacency.begin(root);
+      path[pathSize++] = root;
+      stack[stackSize++] = root;
+
+      while (pathSize > 0) {
+        final int v = path[pathSize - 1];
+        if (nextEdge[v] < adjacency.end(v)) {
+          final int w = adjacency.target(nextEdge[v]++);
+          if (index[w] == UNVISITED) {
+            index[w] = low[w] = counter++;
+            nextEdge[w] = adjacency.begin(w);
+            path[pathSize++] = w;
+            stack[stackSize++] = w;
+          } else if (components[w] == UNVISITED) {
+            // w is still on the stack
+            low[v] = Math.min(low[v], index[w]);
+          }
+          continue;
+        }
+
+        --pathSize;
+        if (low[v] == index[v]) {
+          int w;
+          do {
+            w = stack[--stackSize];
+            components[w] = count;
+          } while (w != v);
+          ++count;
+        }
+        if (pathSize > 0) {
+          final int parent = path[pathSize - 1];
+          low[parent] = Math.min(low[parent], low[v]);
+        }
+      }
+    }
+    nComponents = count;
+    weakComponents = weakComponents(adjacency);
+  }
+
+  /** @return Number of strongly connected components */
+  public int getNComponents() {
+    return nComponents;
+  }
+
+  /**
+   * @param vertex Vertex id
+   * @return Strongly connected component of the vertex
+   */
+  public int component(final int vertex) {
+    return components[vertex];
+  }
+
+  /**
+   * @param from Id of origin vertex
+   * @param to Id of destination vertex
+   * @return true if both vertices belong to the same strongly connected component, which means
+   * they reach each other
+   */
+  public boolean isStronglyConnected(final int from, final int to) {
+    return components[from] == components[to];
+  }
+
+  /**
+   * Constant time reachability filter
+   * @param from Id of origin vertex
+   * @param to Id of destination vertex
+   * @return false if there is certainly no path from the origin to the destination, true if there
+   * may be one (there is one if the graph is symmetric)
+   */
+  public boolean mayReach(final int from, final int to) {
+    return weakComponents[from] == weakComponents[to] && components[to] <= components[from];
+  }
+
+  /**
+   * Labels the weakly connected components with a union-find
+   * @param adjacency Successors of the graph
+   * @return Weakly connected component of each vertex, identified by one of its vertices
+   */
+  private static int[] weakComponents(final CompactAdjacency adjacency) {
+    final int[] parent = new int[adjacency.getNVertices()];
+    for (int v = 0; v < parent.length; ++v)
+      parent[v] = v;
+
+    for (int v = 0; v < parent.length; ++v) {
+      for (int e = adjacency.begin(v); e < adjacency.end(v); ++e) {
+        final int a = find(parent, v);
+        final int b = find(parent, adjacency.target(e));
+        if (a != b)
+          parent[Math.max(a, b)] = Math.min(a, b);
+      }
+    }
+    for (int v = 0; v < parent.length; ++v)
+      parent[v] = find(parent, v);
+    return parent;
+  }
+
+  /**
+   * @param parent Union-find forest, compressed by path halving
+   * @param vertex Vertex id
+   * @return Root of the tree of the vertex
+   */
+  private static int find(final int[] parent, int vertex) {
+    while (parent[vertex] != vertex) {
+      parent[vertex] = parent[parent[vertex]];
+      vertex = parent[vertex];
+    }
+    return vertex;
+  }
+}
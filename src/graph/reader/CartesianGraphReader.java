@@ -2,12 +2,12 @@ package graph.reader;
 
 import graph.core.Edge;
 import graph.core.EdgeFactory;
+import graph.core.EdgeWeighter;
 import graph.core.Vertex;
 import graph.core.VertexFactory;
 import graph.core.impl.Digraph;
 import graph.data.CartesianVertexData;
 
-import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -52,17 +52,35 @@ public final class CartesianGraphReader<V extends Vertex, E extends Edge<V>> {
   public CartesianGraphReader(final VertexFactory<V, CartesianVertexData> vertexFactory,
                               final EdgeFactory<V, E, Void> edgeFactory,
                               final InputStreamReader inputStreamReader) throws IOException {
-    try (BufferedReader bufferedReader = new BufferedReader(inputStreamReader)) {
-      String line = bufferedReader.readLine();
-      if (line == null) {
+    this(vertexFactory, edgeFactory, null, inputStreamReader);
+  }
+
+  /**
+   * Reads the graph from an {@link InputStreamReader} into a compact graph
+   * @param vertexFactory A {@link VertexFactory} which should probably support
+   *                      {@link CartesianVertexData} as delegated data
+   * @param edgeFactory An {@link EdgeFactory}
+   * @param weighter Weighting function of the compact graph, null to store edge lists
+   * @param inputStreamReader An {@link InputStreamReader}
+   * @throws IOException if a read error occurred
+   * @throws IllegalArgumentException if file is malformed
+   * @see Digraph#isCompact()
+   */
+  public CartesianGraphReader(final VertexFactory<V, CartesianVertexData> vertexFactory,
+                              final EdgeFactory<V, E, Void> edgeFactory,
+                              final EdgeWeighter<? super V> weighter,
+                              final InputStreamReader inputStreamReader) throws IOException {
+    try (inputStreamReader) {
+      LineTokenizer tokenizer = new LineTokenizer(inputStreamReader);
+      if (!tokenizer.nextLine()) {
         throw new IllegalArgumentException("File empty");
       }
 
-      this.nVertices = Integer.parseInt(line);
-      this.graphBuilder = new Digraph.Builder<>(vertexFactory, edgeFactory, nVertices);
+      this.nVertices = tokenizer.lineAsInt();
+      this.graphBuilder = new Digraph.Builder<>(vertexFactory, edgeFactory, nVertices, weighter);
 
-      parseVertices(bufferedReader);
-      parseEdges(bufferedReader);
+      parseVertices(tokenizer);
+      parseEdges(tokenizer);
 
       this.graph = graphBuilder.build();
     }
@@ -83,6 +101,24 @@ public final class CartesianGraphReader<V extends Vertex, E extends Edge<V>> {
     this(vertexFactory, edgeFactory, new FileReader(filename));
   }
 
+  /**
+   * Reads the graph from a file into a compact graph
+   * @param vertexFactory A {@link VertexFactory} which should probably support
+   *                      {@link CartesianVertexData} as delegated data
+   * @param edgeFactory An {@link EdgeFactory}
+   * @param weighter Weighting function of the compact graph, null to store edge lists
+   * @param filename A file
+   * @throws IOException if a read error occurred
+   * @throws IllegalArgumentException if file is malformed
+   * @see Digraph#isCompact()
+   */
+  public CartesianGraphReader(final VertexFactory<V, CartesianVertexData> vertexFactory,
+                              final EdgeFactory<V, E, Void> edgeFactory,
+                              final EdgeWeighter<? super V> weighter,
+                              final String filename) throws IOException {
+    this(vertexFactory, edgeFactory, weighter, new FileReader(filename));
+  }
+
   /**
    * @return the graph
    */
@@ -101,27 +137,26 @@ public final class CartesianGraphReader<V extends Vertex, E extends Edge<V>> {
 
   /**
    * Reads vertices
-   * @param bufferedReader A reader
+   * @param tokenizer A tokenizer
    * @throws IOException if a read error occurred
    * @throws IllegalArgumentException if file is malformed
    */
-  private void parseVertices(final BufferedReader bufferedReader) throws IOException {
+  private void parseVertices(final LineTokenizer tokenizer) throws IOException {
     CartesianVertexData data = new CartesianVertexData();
 
     for (int v = 0; v < nVertices; ++v) {
-      String line = bufferedReader.readLine();
-      if (line == null) {
+      if (!tokenizer.nextLine()) {
         throw new IllegalArgumentException(String.format(ILLEGAL_N_VERTICES, v - 1, nVertices));
       }
-      String[] tokens = line.split(" ");
+      final int nTokens = tokenizer.countTokens();
 
       // Extra tokens are ignored
-      if (tokens.length < N_VERTEX_TOKENS)
-        throw new IllegalArgumentException(String.format(ILLEGAL_N_TOKENS, N_VERTEX_TOKENS, tokens.length));
+      if (nTokens < N_VERTEX_TOKENS)
+        throw new IllegalArgumentException(String.format(ILLEGAL_N_TOKENS, N_VERTEX_TOKENS, nTokens));
 
-      final int id = Integer.parseInt(tokens[0]);
-      data.x = Integer.parseInt(tokens[1]);
-      data.y = Integer.parseInt(tokens[2]);
+      final int id = tokenizer.nextInt();
+      data.x = tokenizer.nextInt();
+      data.y = tokenizer.nextInt();
 
       if (id != v)
         throw new IllegalArgumentException(String.format(MISSING_VERTEX, v));
@@ -132,18 +167,15 @@ public final class CartesianGraphReader<V extends Vertex, E extends Edge<V>> {
 
   /**
    * Reads edges
-   * @param bufferedReader A reader
+   * @param tokenizer A tokenizer
    * @throws IOException if a read error occurred
    * @throws IllegalArgumentException if file is malformed
    */
-  private void parseEdges(final BufferedReader bufferedReader) throws IOException {
-    String line;
-    while ((line = bufferedReader.readLine()) != null) {
-      String[] tokens = line.split(" ");
-
+  private void parseEdges(final LineTokenizer tokenizer) throws IOException {
+    while (tokenizer.nextLine()) {
       int from = -1;
-      for (String token : tokens) {
-        final int v = Integer.parseInt(token);
+      while (tokenizer.hasNextToken()) {
+        final int v = tokenizer.nextInt();
 
         if (notInRange(v))
           throw new IllegalArgumentException(String.format(INVALID_VERTEX_ID, v, 0, nVertices - 1));
@@ -0,0 +1,151 @@
+package graph.reader;
+
+import graph.core.Edge;
+import graph.core.EdgeFactory;
+import graph.core.Vertex;
+import graph.core.VertexFactory;
+import graph.core.impl.CompactAdjacency;
+import graph.core.impl.Digraph;
+import graph.data.CartesianVertexData;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a graph written by {@link CartesianGraphSnapshotWriter}
+ *
+ * The file is mapped in memory and each section is copied in bulk into the arrays of a
+ * {@link CompactAdjacency}, no edge is parsed nor built. Vertices are built with their coordinates
+ *
+ * @author Nelson Jeanrenaud
+ * @see CartesianGraphSnapshotWriter
+ */
+public final class CartesianGraphSnapshotReader<V extends Vertex, E extends Edge<V>> {
+  /** First value of a snapshot ("GRPH") */
+  static final int MAGIC = 0x47525048;
+  /** Version of the format */
+  static final int VERSION = 1;
+  /** Size of the header in bytes */
+  static final int HEADER_BYTES = 4 * Integer.BYTES;
+  /** Error message used if the file is not a snapshot. */
+  private static final String NOT_A_SNAPSHOT = "Not a graph snapshot";
+  /** Error message used if the version is not supported. */
+  private static final String UNSUPPORTED_VERSION = "Unsupported snapshot version (got %d, expected %d)";
+  /** Error message used if the file size does not match the header. */
+  private static final String ILLEGAL_SIZE = "Illegal snapshot size (%d bytes, expected %d)";
+  /** Error message used if an edge is declared with an invalid vertex id. */
+  private static final String INVALID_VERTEX_ID = "Invalid vertex id (got %d, should be in [%d, %d])";
+
+  /** Final graph */
+  private final Digraph<V, E> graph;
+
+  /**
+   * Reads the graph from a file
+   * @param vertexFactory A {@link VertexFactory} which should probably support
+   *                      {@link CartesianVertexData} as delegated data
+   * @param edgeFactory An {@link EdgeFactory}
+   * @param filename A file
+   * @throws IOException if a read error occurred
+   * @throws IllegalArgumentException if file is malformed
+   */
+  public CartesianGraphSnapshotReader(final VertexFactory<V, CartesianVertexData> vertexFactory,
+                                      final EdgeFactory<V, E, Void> edgeFactory,
+                                      final String filename) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_BYTES)
+        throw new IllegalArgumentException(NOT_A_SNAPSHOT);
+      final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      if (buffer.getInt() != MAGIC)
+        throw new IllegalArgumentException(NOT_A_SNAPSHOT);
+      final int version = buffer.getInt();
+      if (version != VERSION)
+        throw new IllegalArgumentException(String.format(UNSUPPORTED_VERSION, version, VERSION));
+      final int nVertices = buffer.getInt();
+      final int nEdges = buffer.getInt();
+      if (nVertices <= 0 || nEdges < 0)
+        throw new IllegalArgumentException(NOT_A_SNAPSHOT);
+      final long expectedSize = size(nVertices, nEdges);
+      if (channel.size() != expectedSize)
+        throw new IllegalArgumentException(String.format(ILLEGAL_SIZE, channel.size(), expectedSize));
+
+      final int[] x = new int[nVertices];
+      final int[] y = new int[nVertices];
+      final int[] offsets = new int[nVertices + 1];
+      final int[] targets = new int[nEdges];
+      final long[] weights = new long[nEdges];
+      read(buffer, x);
+      read(buffer, y);
+      read(buffer, offsets);
+      read(buffer, targets);
+      buffer.position(buffer.position() + padding(nVertices, nEdges));
+      buffer.slice().asLongBuffer().get(weights);
+
+      for (int v = 0; v < nVertices; ++v)
+        if (offsets[v] > offsets[v + 1])
+          throw new IllegalArgumentException("Offsets must be non-decreasing");
+      for (int target : targets)
+        if (target < 0 || target >= nVertices)
+          throw new IllegalArgumentException(String.format(INVALID_VERTEX_ID, target, 0, nVertices - 1));
+
+      final Digraph.Builder<V, E, CartesianVertexData, Void> graphBuilder =
+        new Digraph.Builder<>(vertexFactory, edgeFactory, new CompactAdjacency(offsets, targets, weights));
+      final CartesianVertexData data = new CartesianVertexData();
+      for (int v = 0; v < nVertices; ++v) {
+        data.x = x[v];
+        data.y = y[v];
+        graphBuilder.addVertex(v, data);
+      }
+      this.graph = graphBuilder.build();
+    }
+  }
+
+  /**
+   * @return the graph
+   */
+  public Digraph<V, E> graph() {
+    return graph;
+  }
+
+  /**
+   * Number of padding bytes written before the weights so that they are aligned on 8 bytes
+   * @param nVertices Number of vertices
+   * @param nEdges Number of edges
+   * @return Number of padding bytes
+   */
+  static int padding(final int nVertices, final int nEdges) {
+    return (int) (-intSectionsEnd(nVertices, nEdges) & (Long.BYTES - 1));
+  }
+
+  /**
+   * @param nVertices Number of vertices
+   * @param nEdges Number of edges
+   * @return Size in bytes of a snapshot
+   */
+  private static long size(final int nVertices, final int nEdges) {
+    return intSectionsEnd(nVertices, nEdges) + padding(nVertices, nEdges) + (long) nEdges * Long.BYTES;
+  }
+
+  /**
+   * @param nVertices Number of vertices
+   * @param nEdges Number of edges
+   * @return Position following the header, coordinates, offsets and targets
+   */
+  private static long intSectionsEnd(final int nVertices, final int nEdges) {
+    return HEADER_BYTES + (3L * nVertices + 1 + nEdges) * Integer.BYTES;
+  }
+
+  /**
+   * Copies the next ints of the buffer and moves its position after them
+   * @param buffer A buffer
+   * @param values Destination, filled entirely
+   */
+  private static void read(final ByteBuffer buffer, final int[] values) {
+    buffer.slice().asIntBuffer().get(values);
+    buffer.position(buffer.position() + values.length * Integer.BYTES);
+  }
+}
@@ -0,0 +1,76 @@
+package graph.reader;
+
+import graph.core.Edge;
+import graph.core.Vertex;
+import graph.core.impl.CompactAdjacency;
+import graph.core.impl.Digraph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Writes a graph whose vertices own two coordinates (x, y) in the binary snapshot format
+ * read by {@link CartesianGraphSnapshotReader}
+ *
+ * The file is made of big-endian values: a header (magic number, version, number of vertices,
+ * number of edges), the x and y coordinates, then the CSR offsets, targets and weights of the
+ * successors. Padding keeps the weights aligned on 8 bytes
+ *
+ * @author Nelson Jeanrenaud
+ * @see CartesianGraphSnapshotReader
+ */
+public final class CartesianGraphSnapshotWriter {
+
+  private CartesianGraphSnapshotWriter() {
+  }
+
+  /**
+   * Writes a graph to a file
+   * @param graph A graph
+   * @param weigher Extracts the weight of an edge, ignored if the graph is compact
+   * @param x Extracts the x coordinate of a vertex
+   * @param y Extracts the y coordinate of a vertex
+   * @param filename A file
+   * @param <V> Vertex type
+   * @param <E> Edge type
+   * @throws IOException if a write error occurred
+   * @see Digraph#getCompactAdjacency(ToLongFunction)
+   */
+  public static <V extends Vertex, E extends Edge<V>> void write(final Digraph<V, E> graph,
+                                                                 final ToLongFunction<? super E> weigher,
+                                                                 final ToIntFunction<? super V> x,
+                                                                 final ToIntFunction<? super V> y,
+                                                                 final String filename) throws IOException {
+    final CompactAdjacency adjacency = graph.getCompactAdjacency(weigher);
+    final List<V> vertices = graph.getVertices();
+    final int nVertices = graph.getNVertices();
+    final int nEdges = adjacency.getNEdges();
+
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+      out.writeInt(CartesianGraphSnapshotReader.MAGIC);
+      out.writeInt(CartesianGraphSnapshotReader.VERSION);
+      out.writeInt(nVertices);
+      out.writeInt(nEdges);
+
+      for (V vertex : vertices)
+        out.writeInt(x.applyAsInt(vertex));
+      for (V vertex : vertices)
+        out.writeInt(y.applyAsInt(vertex));
+
+      for (int v = 0; v <= nVertices; ++v)
+        out.writeInt(v < nVertices ? adjacency.begin(v) : nEdges);
+      for (int e = 0; e < nEdges; ++e)
+        out.writeInt(adjacency.target(e));
+
+      for (int i = 0; i < CartesianGraphSnapshotReader.padding(nVertices, nEdges); ++i)
+        out.writeByte(0);
+      for (int e = 0; e < nEdges; ++e)
+        out.writeLong(adjacency.weight(e));
+    }
+  }
+}
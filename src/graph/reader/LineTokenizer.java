@@ -0,0 +1,163 @@
+package graph.reader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads integers separated by single spaces, line by line, from a {@link Reader}
+ *
+ * Lines and tokens follow the rules of {@link java.io.BufferedReader#readLine()} and
+ * {@link String#split(String)} with a single space as separator. Characters are scanned in
+ * reused buffers and plain decimal numbers are parsed in place, so reading a well-formed file
+ * allocates nothing per line. Any other token is handed to {@link Integer#parseInt(String)},
+ * which either parses it or throws the usual {@link NumberFormatException}
+ *
+ * @author Nelson Jeanrenaud
+ */
+final class LineTokenizer {
+  /** Size of the read buffer */
+  private static final int BUFFER_SIZE = 1 << 16;
+  /** Decimal digits that always fit in an int */
+  private static final int SAFE_DIGITS = 9;
+
+  /** Source of the characters */
+  private final Reader reader;
+
+  /** Characters read but not consumed yet */
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int bufferPosition;
+  private int bufferLimit;
+
+  /** Current line, without its terminator */
+  private char[] line = new char[128];
+  private int lineLength;
+
+  /** End of the tokens of the line: trailing spaces are ignored as are trailing empty tokens of split */
+  private int tokensLimit;
+  /** Start of the next token */
+  private int position;
+  /** true if the line is empty, which split describes as a single empty token */
+  private boolean emptyTokenPending;
+  /** true if the last character read was a carriage return, a following line feed is skipped */
+  private boolean skipLineFeed;
+
+  /**
+   * @param reader Source of the characters
+   */
+  LineTokenizer(final Reader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * Reads the next line
+   * @return false if the end of the stream has been reached
+   * @throws IOException if a read error occurred
+   */
+  boolean nextLine() throws IOException {
+    lineLength = 0;
+    boolean read = false;
+    while (true) {
+      if (bufferPosition == bufferLimit) {
+        bufferLimit = reader.read(buffer, 0, buffer.length);
+        bufferPosition = 0;
+        if (bufferLimit <= 0) {
+          bufferLimit = 0;
+          if (!read)
+            return false;
+          break;
+        }
+      }
+      if (skipLineFeed) {
+        skipLineFeed = false;
+        if (buffer[bufferPosition] == '\n') {
+          ++bufferPosition;
+          continue;
+        }
+      }
+      read = true;
+      final char c = buffer[bufferPosition++];
+      if (c == '\n')
+        break;
+      if (c == '\r') {
+        skipLineFeed = true;
+        break;
+      }
+      if (lineLength == line.length)
+        line = Arrays.copyOf(line, 2 * lineLength);
+      line[lineLength++] = c;
+    }
+
+    tokensLimit = lineLength;
+    while (tokensLimit > 0 && line[tokensLimit - 1] == ' ')
+      --tokensLimit;
+    position = 0;
+    emptyTokenPending = lineLength == 0;
+    return true;
+  }
+
+  /**
+   * @return Number of tokens of the line, as the length of the array returned by split
+   */
+  int countTokens() {
+    if (lineLength == 0)
+      return 1;
+    if (tokensLimit == 0)
+      return 0;
+    int count = 1;
+    for (int i = 0; i < tokensLimit; ++i)
+      if (line[i] == ' ')
+        ++count;
+    return count;
+  }
+
+  /**
+   * @return true if the line has tokens left
+   */
+  boolean hasNextToken() {
+    return position < tokensLimit || emptyTokenPending;
+  }
+
+  /**
+   * Parses the next token of the line
+   * @return the value of the token
+   * @throws NumberFormatException if the token is not an int
+   */
+  int nextInt() {
+    emptyTokenPending = false;
+    int end = position;
+    while (end < tokensLimit && line[end] != ' ')
+      ++end;
+    final int value = parse(position, end);
+    position = end + 1;
+    return value;
+  }
+
+  /**
+   * Parses the whole line, spaces included
+   * @return the value of the line
+   * @throws NumberFormatException if the line is not an int
+   */
+  int lineAsInt() {
+    return parse(0, lineLength);
+  }
+
+  /**
+   * @param start Index of the first character
+   * @param end Index following the last character
+   * @return the value of the characters
+   * @throws NumberFormatException if the characters are not an int
+   */
+  private int parse(final int start, final int end) {
+    if (start == end || end - start > SAFE_DIGITS)
+      return Integer.parseInt(new String(line, start, end - start));
+    int value = 0;
+    for (int i = start; i < end; ++i) {
+      final int digit = line[i] - '0';
+      if (digit < 0 || digit > 9)
+        return Integer.parseInt(new String(line, start, end - start));
+      value = 10 * value + digit;
+    }
+    return value;
+  }
+}
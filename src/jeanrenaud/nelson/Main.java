@@ -32,6 +32,8 @@ public class Main {
                                                             renvoyant la distance euclidienne (arrondie
                                                             à l'entier le plus proche) entre l'extrémité
                                                             initiale et l'extrémité finale de l'arête */),
+                new EuclideanDistance<>()                    /* Graphe compact (CSR) pondéré par la même
+                                                            fonction, sans objets arête */,
                 DATA_FOLDER + "R10000_1.txt"                       /* TODO: Chemin des fichiers */
         ).graph();
 
@@ -0,0 +1,43 @@
+package jeanrenaud.nelson.alt;
+
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.astar.AStar;
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.Objects;
+
+/**
+ * ALT algorithm: A* with landmarks and the triangle inequality.
+ * @author Nelson Jeanrenaud
+ * @see Landmarks
+ */
+public class ALT extends AStar {
+    /**
+     * Create a new ALT instance.
+     * @param graph Graph on which the algorithm is applied.
+     * @param landmarks Landmarks of the graph with their distances.
+     * @throws NullPointerException if the graph or the landmarks are null.
+     * @throws IllegalArgumentException if the landmarks were computed on another graph.
+     */
+    public ALT(Digraph<Node, SimpleWeightedEdge<Node>> graph, Landmarks landmarks) {
+        super(graph, new LandmarkEstimator(checkSize(graph, landmarks)));
+    }
+
+    @Override
+    public String getName() {
+        return "ALT";
+    }
+
+    /**
+     * @return the landmarks if they match the graph.
+     */
+    private static Landmarks checkSize(Digraph<Node, SimpleWeightedEdge<Node>> graph, Landmarks landmarks) {
+        Objects.requireNonNull(graph, "Graph cannot be null");
+        Objects.requireNonNull(landmarks, "Landmarks cannot be null");
+        if (!landmarks.isComputedOn(graph)) {
+            throw new IllegalArgumentException("The landmarks were computed for another graph");
+        }
+        return landmarks;
+    }
+}
@@ -0,0 +1,30 @@
+package jeanrenaud.nelson.alt;
+
+import jeanrenaud.nelson.astar.DistanceEstimator;
+
+import java.util.Objects;
+
+/**
+ * {@link DistanceEstimator} using the triangle inequality with precomputed landmark distances.
+ * The estimate is the maximum of the bounds given by each landmark, which is consistent.
+ * @author Nelson Jeanrenaud
+ */
+public class LandmarkEstimator implements DistanceEstimator {
+    /** Landmarks and their distances. */
+    private final Landmarks landmarks;
+
+    /**
+     * Create an estimator.
+     * @param landmarks landmarks and their distances.
+     * @throws NullPointerException if the landmarks are null.
+     */
+    public LandmarkEstimator(Landmarks landmarks) {
+        Objects.requireNonNull(landmarks, "The landmarks cannot be null.");
+        this.landmarks = landmarks;
+    }
+
+    @Override
+    public long lowerBound(int from, int to) {
+        return landmarks.lowerBound(from, to);
+    }
+}
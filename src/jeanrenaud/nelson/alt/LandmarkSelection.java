@@ -0,0 +1,18 @@
+package jeanrenaud.nelson.alt;
+
+/**
+ * Strategies used to choose the landmarks.
+ * @author Nelson Jeanrenaud
+ * @see Landmarks
+ */
+public enum LandmarkSelection {
+    /**
+     * Each new landmark is the node farthest from the landmarks already chosen.
+     */
+    FARTHEST,
+    /**
+     * Each new landmark is a leaf of the shortest path tree of a random node, in the subtree where the landmarks
+     * already chosen give the worst lower bounds and that contains no landmark.
+     */
+    AVOID
+}
@@ -0,0 +1,353 @@
+package jeanrenaud.nelson.alt;
+
+import graph.core.impl.CompactAdjacency;
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.dijkstra.Dijkstra;
+import jeanrenaud.nelson.dijkstra.SearchWorkspace;
+import jeanrenaud.nelson.graph.Node;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Landmarks of a graph with the distances from and to each of them.
+ * By the triangle inequality, d(landmark, to) - d(landmark, from) and d(from, landmark) - d(to, landmark) are lower
+ * bounds of d(from, to).
+ * @author Nelson Jeanrenaud
+ * @see LandmarkEstimator
+ */
+public class Landmarks {
+    /** Distance of a node that can't be reached. */
+    public static final long UNREACHED = SearchWorkspace.UNREACHED;
+    /** First value of a landmarks file. */
+    private static final int FILE_MAGIC = 0x414c5432;
+
+    /** Number of nodes of the graph. */
+    private final int nbVertices;
+    /** Fingerprint of the successors of the graph, see {@link CompactAdjacency#fingerprint()}. */
+    private final long fingerprint;
+    /** Id of each landmark. */
+    private final int[] landmarks;
+    /** Distance from each landmark to every node. */
+    private final long[][] fromLandmark;
+    /** Distance from every node to each landmark. */
+    private final long[][] toLandmark;
+
+    /**
+     * Create landmarks from precomputed distances.
+     * @param nbVertices number of nodes of the graph.
+     * @param fingerprint fingerprint of the successors of the graph.
+     * @param landmarks id of each landmark.
+     * @param fromLandmark distance from each landmark to every node.
+     * @param toLandmark distance from every node to each landmark.
+     * @throws IllegalArgumentException if the array sizes are inconsistent.
+     */
+    private Landmarks(int nbVertices, long fingerprint, int[] landmarks, long[][] fromLandmark,
+                      long[][] toLandmark) {
+        if (fromLandmark.length != landmarks.length || toLandmark.length != landmarks.length) {
+            throw new IllegalArgumentException("Invalid number of distance arrays");
+        }
+        for (int i = 0; i < landmarks.length; i++) {
+            if (fromLandmark[i].length != nbVertices || toLandmark[i].length != nbVertices) {
+                throw new IllegalArgumentException("Invalid number of distances for landmark " + landmarks[i]);
+            }
+        }
+        this.nbVertices = nbVertices;
+        this.fingerprint = fingerprint;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    /**
+     * Choose landmarks and compute their distances with one-to-all Dijkstra searches on the graph and its transpose.
+     * @param graph the graph.
+     * @param count number of landmarks.
+     * @param selection strategy used to choose the landmarks.
+     * @param seed seed of the random choices.
+     * @return the landmarks.
+     * @throws NullPointerException if the graph or the selection is null.
+     * @throws IllegalArgumentException if count is not between 1 and the number of nodes.
+     */
+    public static Landmarks select(Digraph<Node, SimpleWeightedEdge<Node>> graph, int count,
+                                   LandmarkSelection selection, long seed) {
+        Objects.requireNonNull(graph, "The graph cannot be null.");
+        Objects.requireNonNull(selection, "The selection cannot be null.");
+        int nbVertices = graph.getNVertices();
+        if (count <= 0 || count > nbVertices) {
+            throw new IllegalArgumentException("The number of landmarks must be between 1 and " + nbVertices);
+        }
+        long fingerprint = graph.getCompactAdjacency(SimpleWeightedEdge.WEIGHER).fingerprint();
+        Dijkstra forward = new Dijkstra(graph, false);
+        Dijkstra backward = new Dijkstra(graph, true);
+        Random random = new Random(seed);
+
+        int[] landmarks = new int[count];
+        long[][] fromLandmark = new long[count][];
+        long[][] toLandmark = new long[count][];
+        // Smallest distance from a landmark to each node, used by the farthest strategy
+        long[] closest = new long[nbVertices];
+        Arrays.fill(closest, UNREACHED);
+
+        // The first landmark is the node farthest from a random node
+        forward.run(graph.getVertices().get(random.nextInt(nbVertices)), null);
+        int landmark = farthest(forward, nbVertices);
+        for (int i = 0; i < count; i++) {
+            landmarks[i] = landmark;
+            forward.run(graph.getVertices().get(landmark), null);
+            backward.run(graph.getVertices().get(landmark), null);
+            fromLandmark[i] = distances(forward, nbVertices);
+            toLandmark[i] = distances(backward, nbVertices);
+            if (i + 1 == count) {
+                break;
+            }
+            Landmarks chosen = new Landmarks(nbVertices, fingerprint, Arrays.copyOf(landmarks, i + 1),
+                    Arrays.copyOf(fromLandmark, i + 1), Arrays.copyOf(toLandmark, i + 1));
+            if (selection == LandmarkSelection.FARTHEST) {
+                for (int v = 0; v < nbVertices; v++) {
+                    closest[v] = Math.min(closest[v], fromLandmark[i][v]);
+                }
+                landmark = farthest(closest, chosen);
+            } else {
+                forward.run(graph.getVertices().get(random.nextInt(nbVertices)), null);
+                landmark = avoid(forward, chosen);
+            }
+        }
+        return new Landmarks(nbVertices, fingerprint, landmarks, fromLandmark, toLandmark);
+    }
+
+    /**
+     * Load landmarks saved with {@link #save(String)}.
+     * @param filename the file.
+     * @return the landmarks.
+     * @throws IOException if a read error occurred.
+     * @throws IllegalArgumentException if the file is not a landmarks file.
+     */
+    public static Landmarks load(String filename) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IllegalArgumentException("Not a landmarks file");
+            }
+            int nbVertices = in.readInt();
+            long fingerprint = in.readLong();
+            int count = in.readInt();
+            if (nbVertices <= 0 || count <= 0 || count > nbVertices) {
+                throw new IllegalArgumentException("Invalid landmarks file header");
+            }
+            int[] landmarks = new int[count];
+            for (int i = 0; i < count; i++) {
+                landmarks[i] = in.readInt();
+            }
+            long[][] fromLandmark = new long[count][nbVertices];
+            long[][] toLandmark = new long[count][nbVertices];
+            for (int i = 0; i < count; i++) {
+                for (int v = 0; v < nbVertices; v++) {
+                    fromLandmark[i][v] = in.readLong();
+                }
+                for (int v = 0; v < nbVertices; v++) {
+                    toLandmark[i][v] = in.readLong();
+                }
+            }
+            return new Landmarks(nbVertices, fingerprint, landmarks, fromLandmark, toLandmark);
+        }
+    }
+
+    /**
+     * Save the landmarks and their distances.
+     * @param filename the file.
+     * @throws IOException if a write error occurred.
+     */
+    public void save(String filename) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(nbVertices);
+            out.writeLong(fingerprint);
+            out.writeInt(landmarks.length);
+            for (int landmark : landmarks) {
+                out.writeInt(landmark);
+            }
+            for (int i = 0; i < landmarks.length; i++) {
+                for (long distance : fromLandmark[i]) {
+                    out.writeLong(distance);
+                }
+                for (long distance : toLandmark[i]) {
+                    out.writeLong(distance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of nodes of the graph.
+     * @return the number of nodes.
+     */
+    public int getNbVertices() {
+        return nbVertices;
+    }
+
+    /**
+     * Get the fingerprint of the graph the landmarks were computed on.
+     * @return the fingerprint of its successors, see {@link CompactAdjacency#fingerprint()}.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Check that the landmarks were computed on a graph: same number of nodes, same edges and same weights.
+     * @param graph the graph.
+     * @return true if the distances of the landmarks are those of the graph.
+     */
+    public boolean isComputedOn(Digraph<Node, SimpleWeightedEdge<Node>> graph) {
+        return graph.getNVertices() == nbVertices
+                && graph.getCompactAdjacency(SimpleWeightedEdge.WEIGHER).fingerprint() == fingerprint;
+    }
+
+    /**
+     * Get the number of landmarks.
+     * @return the number of landmarks.
+     */
+    public int getCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * Get a landmark.
+     * @param index index of the landmark, between 0 and {@link #getCount()} - 1.
+     * @return the id of the landmark node.
+     */
+    public int getLandmark(int index) {
+        return landmarks[index];
+    }
+
+    /**
+     * Get the best lower bound given by the landmarks.
+     * Bounds involving a node that can't reach or be reached by a landmark are ignored.
+     * @param from id of the origin node.
+     * @param to id of the destination node.
+     * @return a lower bound of the distance from the origin to the destination.
+     */
+    public long lowerBound(int from, int to) {
+        long bound = 0;
+        for (int i = 0; i < landmarks.length; i++) {
+            long[] from_ = fromLandmark[i];
+            if (from_[from] != UNREACHED && from_[to] != UNREACHED) {
+                bound = Math.max(bound, from_[to] - from_[from]);
+            }
+            long[] to_ = toLandmark[i];
+            if (to_[from] != UNREACHED && to_[to] != UNREACHED) {
+                bound = Math.max(bound, to_[from] - to_[to]);
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * @return the distances computed by the last search.
+     */
+    private static long[] distances(Dijkstra dijkstra, int nbVertices) {
+        long[] distances = new long[nbVertices];
+        for (int v = 0; v < nbVertices; v++) {
+            distances[v] = dijkstra.getDistance(v);
+        }
+        return distances;
+    }
+
+    /**
+     * @return the reachable node with the largest distance in the last search.
+     */
+    private static int farthest(Dijkstra dijkstra, int nbVertices) {
+        int farthest = 0;
+        long farthestDistance = -1;
+        for (int v = 0; v < nbVertices; v++) {
+            long distance = dijkstra.getDistance(v);
+            if (distance != UNREACHED && distance > farthestDistance) {
+                farthest = v;
+                farthestDistance = distance;
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * @return the node, reachable from a landmark, whose closest landmark is the farthest.
+     */
+    private static int farthest(long[] closest, Landmarks chosen) {
+        int farthest = chosen.landmarks[0];
+        long farthestDistance = -1;
+        for (int v = 0; v < closest.length; v++) {
+            if (closest[v] != UNREACHED && closest[v] > farthestDistance) {
+                farthest = v;
+                farthestDistance = closest[v];
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * Choose a landmark with the avoid strategy.
+     * @param tree search from a random root that settled its shortest path tree.
+     * @param chosen landmarks already chosen.
+     * @return the new landmark.
+     */
+    private static int avoid(Dijkstra tree, Landmarks chosen) {
+        int nbVertices = chosen.nbVertices;
+        int root = -1;
+        long[] distance = distances(tree, nbVertices);
+        Integer[] settled = new Integer[nbVertices];
+        int nbSettled = 0;
+        for (int v = 0; v < nbVertices; v++) {
+            if (distance[v] != UNREACHED) {
+                settled[nbSettled++] = v;
+                if (tree.getPrevious(v) < 0) {
+                    root = v;
+                }
+            }
+        }
+        // Children are processed before their parent
+        Arrays.sort(settled, 0, nbSettled, (a, b) -> Long.compare(distance[b], distance[a]));
+
+        boolean[] isLandmark = new boolean[nbVertices];
+        for (int landmark : chosen.landmarks) {
+            isLandmark[landmark] = true;
+        }
+        // Size of a subtree: sum of the lower bound errors, 0 if it contains a landmark
+        long[] size = new long[nbVertices];
+        boolean[] hasLandmark = new boolean[nbVertices];
+        // Child of each node with the largest size, -1 for leaves
+        int[] largestChild = new int[nbVertices];
+        Arrays.fill(largestChild, -1);
+        for (int i = 0; i < nbSettled; i++) {
+            int v = settled[i];
+            hasLandmark[v] |= isLandmark[v];
+            size[v] = hasLandmark[v] ? 0 : size[v] + distance[v] - chosen.lowerBound(root, v);
+            int parent = tree.getPrevious(v);
+            if (parent >= 0) {
+                hasLandmark[parent] |= hasLandmark[v];
+                size[parent] += size[v];
+                if (largestChild[parent] < 0 || size[v] > size[largestChild[parent]]) {
+                    largestChild[parent] = v;
+                }
+            }
+        }
+        int node = root;
+        for (int i = 0; i < nbSettled; i++) {
+            if (size[settled[i]] > size[node]) {
+                node = settled[i];
+            }
+        }
+        while (largestChild[node] >= 0) {
+            node = largestChild[node];
+        }
+        return node;
+    }
+}
@@ -0,0 +1,250 @@
+package jeanrenaud.nelson.arcflags;
+
+import graph.core.impl.CompactAdjacency;
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.dijkstra.Dijkstra;
+import jeanrenaud.nelson.dijkstra.SearchWorkspace;
+import jeanrenaud.nelson.graph.KdPartition;
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Arc flags of a graph: one flag per edge and region of a partition, set if the edge starts a shortest path to a
+ * node of the region. A search towards a target only needs to follow the edges flagged with the region of the target.
+ * The edges inside a region are flagged with it. Every other shortest path to a node of a region enters it through a
+ * boundary node, a node of the region with a predecessor outside of it: a backward search from each boundary node
+ * flags every edge on a shortest path to it. The regions are preprocessed in parallel, each into its own bitset of
+ * the edges, the bitsets are then transposed into the flags of each edge.
+ * @author Nelson Jeanrenaud
+ * @see ArcFlagsDijkstra
+ */
+public class ArcFlags {
+    /** Graph of the flags. */
+    private final Digraph<Node, SimpleWeightedEdge<Node>> graph;
+    /** Partition of the nodes into regions. */
+    private final KdPartition partition;
+    /** Number of words of the flags of an edge. */
+    private final int nbWords;
+    /** Flags of each edge of the compact adjacency of the graph, region r of edge e is bit r % 64 of word
+     * e * nbWords + r / 64. */
+    private final long[] flags;
+    /** Number of boundary nodes of all the regions. */
+    private final int nbBoundaryNodes;
+
+    private ArcFlags(Digraph<Node, SimpleWeightedEdge<Node>> graph, KdPartition partition, long[] flags,
+                     int nbBoundaryNodes) {
+        this.graph = graph;
+        this.partition = partition;
+        this.nbWords = (partition.getNbRegions() + Long.SIZE - 1) / Long.SIZE;
+        this.flags = flags;
+        this.nbBoundaryNodes = nbBoundaryNodes;
+    }
+
+    /**
+     * Compute the flags of a graph using one thread per available processor.
+     * @param graph the graph.
+     * @param partition partition of the nodes of the graph.
+     * @return the flags.
+     * @throws NullPointerException if an argument is null.
+     * @throws IllegalArgumentException if the partition does not have the nodes of the graph.
+     */
+    public static ArcFlags preprocess(Digraph<Node, SimpleWeightedEdge<Node>> graph, KdPartition partition) {
+        return preprocess(graph, partition, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Compute the flags of a graph.
+     * @param graph the graph.
+     * @param partition partition of the nodes of the graph.
+     * @param nbThreads number of threads.
+     * @return the flags.
+     * @throws NullPointerException if an argument is null.
+     * @throws IllegalArgumentException if the partition does not have the nodes of the graph or the number of
+     * threads is not positive.
+     */
+    public static ArcFlags preprocess(Digraph<Node, SimpleWeightedEdge<Node>> graph, KdPartition partition,
+                                      int nbThreads) {
+        Objects.requireNonNull(graph, "The graph cannot be null.");
+        Objects.requireNonNull(partition, "The partition cannot be null.");
+        if (partition.size() != graph.getNVertices()) {
+            throw new IllegalArgumentException("The partition does not have the nodes of the graph");
+        }
+        if (nbThreads <= 0) {
+            throw new IllegalArgumentException("The number of threads must be positive");
+        }
+        CompactAdjacency adjacency = graph.getCompactAdjacency(SimpleWeightedEdge.WEIGHER);
+        int nbRegions = partition.getNbRegions();
+        int[][] boundaries = boundaryNodes(graph, partition);
+        int nbBoundaryNodes = 0;
+        for (int[] boundary : boundaries) {
+            nbBoundaryNodes += boundary.length;
+        }
+
+        // Each region fills its own bitset of the edges, the threads never write the same word
+        long[][] regionFlags = new long[nbRegions][];
+        AtomicInteger cursor = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads, runnable -> {
+            Thread thread = new Thread(runnable, "arc-flags");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> tasks = new ArrayList<>(nbThreads);
+        try {
+            for (int thread = 0; thread < nbThreads; thread++) {
+                tasks.add(executor.submit(() -> {
+                    Dijkstra backward = new Dijkstra(graph, true);
+                    int region;
+                    while ((region = cursor.getAndIncrement()) < nbRegions) {
+                        regionFlags[region] = flagRegion(graph, adjacency, partition, region, boundaries[region],
+                                backward);
+                    }
+                }));
+            }
+            // Future.get orders the writes of the threads before the transposition
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            tasks.forEach(task -> task.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing the arc flags", e);
+        } catch (ExecutionException e) {
+            tasks.forEach(task -> task.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int nbWords = (nbRegions + Long.SIZE - 1) / Long.SIZE;
+        long[] flags = new long[Math.multiplyExact(adjacency.getNEdges(), nbWords)];
+        for (int region = 0; region < nbRegions; region++) {
+            long[] bitset = regionFlags[region];
+            for (int word = 0; word < bitset.length; word++) {
+                for (long bits = bitset[word]; bits != 0; bits &= bits - 1) {
+                    int edge = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                    flags[edge * nbWords + region / Long.SIZE] |= 1L << region;
+                }
+            }
+            regionFlags[region] = null;
+        }
+        return new ArcFlags(graph, partition, flags, nbBoundaryNodes);
+    }
+
+    /**
+     * Flag the edges leading to a region.
+     * @param graph the graph.
+     * @param adjacency successors of the graph.
+     * @param partition partition of the nodes.
+     * @param region the region.
+     * @param boundary boundary nodes of the region.
+     * @param backward search following the predecessors of the graph.
+     * @return the bitset of the flagged edges.
+     */
+    private static long[] flagRegion(Digraph<Node, SimpleWeightedEdge<Node>> graph, CompactAdjacency adjacency,
+                                     KdPartition partition, int region, int[] boundary, Dijkstra backward) {
+        long[] bitset = new long[(adjacency.getNEdges() + Long.SIZE - 1) / Long.SIZE];
+        for (int v = 0; v < adjacency.getNVertices(); v++) {
+            if (partition.getRegion(v) != region) {
+                continue;
+            }
+            for (int edge = adjacency.begin(v); edge < adjacency.end(v); edge++) {
+                if (partition.getRegion(adjacency.target(edge)) == region) {
+                    bitset[edge / Long.SIZE] |= 1L << edge;
+                }
+            }
+        }
+        for (int node : boundary) {
+            backward.run(graph.getVertices().get(node), null);
+            // An edge is on a shortest path to the boundary node if its weight closes the gap between its ends
+            for (int v = 0; v < adjacency.getNVertices(); v++) {
+                long distance = backward.getDistance(v);
+                if (distance == SearchWorkspace.UNREACHED) {
+                    continue;
+                }
+                for (int edge = adjacency.begin(v); edge < adjacency.end(v); edge++) {
+                    long next = backward.getDistance(adjacency.target(edge));
+                    if (next != SearchWorkspace.UNREACHED && next + adjacency.weight(edge) == distance) {
+                        bitset[edge / Long.SIZE] |= 1L << edge;
+                    }
+                }
+            }
+        }
+        return bitset;
+    }
+
+    /**
+     * @return the ids of the nodes of each region having a predecessor outside of the region.
+     */
+    private static int[][] boundaryNodes(Digraph<Node, SimpleWeightedEdge<Node>> graph, KdPartition partition) {
+        CompactAdjacency predecessors = graph.getPredecessorAdjacency(SimpleWeightedEdge.WEIGHER);
+        int[] counts = new int[partition.getNbRegions()];
+        boolean[] isBoundary = new boolean[predecessors.getNVertices()];
+        for (int v = 0; v < predecessors.getNVertices(); v++) {
+            for (int edge = predecessors.begin(v); edge < predecessors.end(v); edge++) {
+                if (partition.getRegion(predecessors.target(edge)) != partition.getRegion(v)) {
+                    isBoundary[v] = true;
+                    counts[partition.getRegion(v)]++;
+                    break;
+                }
+            }
+        }
+        int[][] boundaries = new int[counts.length][];
+        for (int region = 0; region < counts.length; region++) {
+            boundaries[region] = new int[counts[region]];
+            counts[region] = 0;
+        }
+        for (int v = 0; v < isBoundary.length; v++) {
+            if (isBoundary[v]) {
+                int region = partition.getRegion(v);
+                boundaries[region][counts[region]++] = v;
+            }
+        }
+        return boundaries;
+    }
+
+    /**
+     * Get the graph of the flags.
+     * @return the graph.
+     */
+    public Digraph<Node, SimpleWeightedEdge<Node>> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Get the partition of the nodes into regions.
+     * @return the partition.
+     */
+    public KdPartition getPartition() {
+        return partition;
+    }
+
+    /**
+     * Get the number of boundary nodes, the number of backward searches of the preprocessing.
+     * @return the number of boundary nodes of all the regions.
+     */
+    public int getNbBoundaryNodes() {
+        return nbBoundaryNodes;
+    }
+
+    /**
+     * Check if an edge starts a shortest path to a node of a region.
+     * @param edge index of the edge in the compact adjacency of the graph.
+     * @param region the region.
+     * @return true if the edge is flagged with the region.
+     */
+    public boolean isFlagged(int edge, int region) {
+        return (flags[edge * nbWords + region / Long.SIZE] & 1L << region) != 0;
+    }
+}
@@ -0,0 +1,49 @@
+package jeanrenaud.nelson.arcflags;
+
+import jeanrenaud.nelson.dijkstra.Dijkstra;
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.Objects;
+
+/**
+ * Dijkstra following only the edges flagged with the region of the target.
+ * Every shortest path to the target only uses flagged edges, so the search finds the same distance while settling
+ * fewer nodes. Without a target every edge is followed.
+ * @author Nelson Jeanrenaud
+ * @see ArcFlags
+ */
+public class ArcFlagsDijkstra extends Dijkstra {
+    /** Flags of the edges of the graph. */
+    private final ArcFlags flags;
+    /** Region of the target of the current search, -1 without target. */
+    private int targetRegion;
+
+    /**
+     * Create a new arc flags instance.
+     * @param flags the arc flags of the graph the search is applied on.
+     * @throws NullPointerException if the flags are null.
+     */
+    public ArcFlagsDijkstra(ArcFlags flags) {
+        super(Objects.requireNonNull(flags, "Flags cannot be null").getGraph());
+        this.flags = flags;
+        this.targetRegion = -1;
+    }
+
+    @Override
+    protected void initialize(Node source, Node target) {
+        super.initialize(source, target);
+        targetRegion = target == null ? -1 : flags.getPartition().getRegion(target.id());
+    }
+
+    @Override
+    protected void processEdge(int edge, int removedId) {
+        if (targetRegion < 0 || flags.isFlagged(edge, targetRegion)) {
+            super.processEdge(edge, removedId);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Arc Flags";
+    }
+}
@@ -0,0 +1,50 @@
+package jeanrenaud.nelson.astar;
+
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.dijkstra.Dijkstra;
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.Objects;
+
+/**
+ * A* algorithm: Dijkstra where the key of a node is its distance from the source plus a lower bound on its distance
+ * to the target. The estimator is consistent so a node removed from the queue has its exact distance.
+ * @author Nelson Jeanrenaud
+ */
+public class AStar extends Dijkstra {
+    /** Lower bound of the distance to the target. */
+    private final DistanceEstimator estimator;
+
+    /**
+     * Create a new A* instance using the coordinates of the nodes.
+     * @param graph Graph on which the algorithm is applied.
+     * @throws NullPointerException if the graph is null.
+     */
+    public AStar(Digraph<Node, SimpleWeightedEdge<Node>> graph) {
+        this(graph, new EuclideanEstimator(graph));
+    }
+
+    /**
+     * Create a new A* instance.
+     * @param graph Graph on which the algorithm is applied.
+     * @param estimator Consistent lower bound of the distance between two nodes.
+     * @throws NullPointerException if the graph or the estimator is null.
+     */
+    public AStar(Digraph<Node, SimpleWeightedEdge<Node>> graph, DistanceEstimator estimator) {
+        super(graph);
+        Objects.requireNonNull(estimator, "Estimator cannot be null");
+        this.estimator = estimator;
+    }
+
+    @Override
+    protected long getPriority(long distance, int id) {
+        // Without a target the search computes all the shortest paths, there is no goal to direct it to
+        return getTarget() == null ? distance : distance + estimator.lowerBound(id, getTarget().id());
+    }
+
+    @Override
+    public String getName() {
+        return "A*";
+    }
+}
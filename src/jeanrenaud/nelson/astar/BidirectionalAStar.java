@@ -0,0 +1,74 @@
+package jeanrenaud.nelson.astar;
+
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.dijkstra.BidirectionalDijkstra;
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.Objects;
+
+/**
+ * Bidirectional A* algorithm with the average potential:
+ * the forward search uses p(v) = (h(v, target) - h(source, v)) / 2 and the backward search -p(v).
+ * Both searches then see the same non-negative reduced edge weights, which keeps the stopping rule of
+ * {@link BidirectionalDijkstra} valid: the sum of the keys of both queues is compared to twice the length of the
+ * shortest path found, since the keys are doubled to stay integral.
+ * @author Nelson Jeanrenaud
+ */
+public class BidirectionalAStar extends BidirectionalDijkstra {
+    /** Lower bound of the distance between two nodes. */
+    private final DistanceEstimator estimator;
+
+    /**
+     * Constructor using the coordinates of the nodes.
+     * @param graph the graph to use.
+     * @throws NullPointerException if the graph is null.
+     */
+    public BidirectionalAStar(Digraph<Node, SimpleWeightedEdge<Node>> graph) {
+        this(graph, new EuclideanEstimator(graph));
+    }
+
+    /**
+     * Constructor.
+     * @param graph the graph to use.
+     * @param estimator consistent lower bound of the distance between two nodes.
+     * @throws NullPointerException if the graph or the estimator is null.
+     */
+    public BidirectionalAStar(Digraph<Node, SimpleWeightedEdge<Node>> graph, DistanceEstimator estimator) {
+        super(graph);
+        Objects.requireNonNull(estimator, "The estimator cannot be null.");
+        this.estimator = estimator;
+    }
+
+    @Override
+    protected long getForwardPriority(long distance, int id) {
+        return 2 * distance + potential(id);
+    }
+
+    @Override
+    protected long getBackwardPriority(long distance, int id) {
+        return 2 * distance - potential(id);
+    }
+
+    /**
+     * The keys of both searches are doubled, so is the length of the shortest path they are compared to.
+     */
+    @Override
+    protected long getStoppingKey(long shortestPathLength) {
+        return shortestPathLength > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : 2 * shortestPathLength;
+    }
+
+    /**
+     * Get twice the forward potential of a node.
+     * @param id index of the node.
+     * @return h(node, target) - h(source, node).
+     */
+    private long potential(int id) {
+        return estimator.lowerBound(id, getTarget().id()) - estimator.lowerBound(getSource().id(), id);
+    }
+
+    @Override
+    public String getName() {
+        return "Bidirectional A*";
+    }
+}
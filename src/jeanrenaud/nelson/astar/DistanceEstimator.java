@@ -0,0 +1,18 @@
+package jeanrenaud.nelson.astar;
+
+/**
+ * Lower bound on the shortest path distance between two nodes, used to goal-direct a search.
+ * Implementations must be consistent: for every edge (u, v) of weight w and every node t,
+ * {@code lowerBound(u, t) <= w + lowerBound(v, t)} and {@code lowerBound(t, v) <= lowerBound(t, u) + w}.
+ * @author Nelson Jeanrenaud
+ * @see AStar
+ */
+public interface DistanceEstimator {
+    /**
+     * Get a lower bound on the shortest path distance between two nodes.
+     * @param from id of the origin node.
+     * @param to id of the destination node.
+     * @return a lower bound on the distance from the origin to the destination, never negative.
+     */
+    long lowerBound(int from, int to);
+}
@@ -0,0 +1,81 @@
+package jeanrenaud.nelson.astar;
+
+import graph.core.impl.CompactAdjacency;
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@link DistanceEstimator} using the straight line distance between the coordinates of the nodes.
+ * Edge weights are rounded euclidean lengths (see {@link jeanrenaud.nelson.graph.EuclideanDistance}) and can be
+ * shorter than the segment they represent, e.g. a diagonal of length 1.41 weighs 1. The straight line distance is
+ * therefore scaled by the smallest weight / length ratio of the graph edges, which keeps the estimate admissible
+ * and consistent whatever the weighting function.
+ * @author Nelson Jeanrenaud
+ */
+public class EuclideanEstimator implements DistanceEstimator {
+    /** Relative margin removed from the scale to absorb floating point errors. */
+    private static final double SCALE_MARGIN = 1e-9;
+
+    /** Coordinates of the nodes, indexed by id. */
+    private final int[] x;
+    private final int[] y;
+    /** Smallest ratio between the weight and the euclidean length of an edge. */
+    private final double scale;
+
+    /**
+     * Creates an estimator for the given graph.
+     * @param graph the graph whose node coordinates and edge weights are used.
+     * @throws NullPointerException if the graph is null.
+     */
+    public EuclideanEstimator(Digraph<Node, SimpleWeightedEdge<Node>> graph) {
+        Objects.requireNonNull(graph, "The graph cannot be null.");
+        List<Node> nodes = graph.getVertices();
+        this.x = new int[nodes.size()];
+        this.y = new int[nodes.size()];
+        for (Node node : nodes) {
+            x[node.id()] = node.getX();
+            y[node.id()] = node.getY();
+        }
+
+        CompactAdjacency adjacency = graph.getCompactAdjacency(SimpleWeightedEdge.WEIGHER);
+        double minRatio = Double.POSITIVE_INFINITY;
+        for (int from = 0; from < adjacency.getNVertices(); from++) {
+            for (int edge = adjacency.begin(from); edge < adjacency.end(from); edge++) {
+                double length = length(from, adjacency.target(edge));
+                if (length > 0) {
+                    minRatio = Math.min(minRatio, adjacency.weight(edge) / length);
+                }
+            }
+        }
+        this.scale = minRatio == Double.POSITIVE_INFINITY ? 0 : minRatio * (1 - SCALE_MARGIN);
+    }
+
+    /**
+     * Get the factor applied to the straight line distance.
+     * @return the smallest weight / length ratio of the graph edges.
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    @Override
+    public long lowerBound(int from, int to) {
+        return (long) Math.floor(scale * length(from, to));
+    }
+
+    /**
+     * Get the straight line distance between two nodes.
+     * @param from id of the first node.
+     * @param to id of the second node.
+     * @return the euclidean distance between the two nodes.
+     */
+    private double length(int from, int to) {
+        long dx = x[from] - x[to];
+        long dy = y[from] - y[to];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
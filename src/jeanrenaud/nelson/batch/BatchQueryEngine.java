@@ -0,0 +1,201 @@
+package jeanrenaud.nelson.batch;
+
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.dijkstra.Dijkstra;
+import jeanrenaud.nelson.dijkstra.Path;
+import jeanrenaud.nelson.dijkstra.ShortestPathAlgorithm;
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Run batches of shortest path queries on several threads.
+ * Every thread owns an algorithm instance (and therefore its search state), all the instances share the same
+ * graph, which is only read. The threads take the queries by chunks from a shared cursor so that long queries
+ * don't leave the other threads idle, and every result is written at the index of its query.
+ * The algorithm instances are reused by every batch, so batches submitted by several threads run one after the other.
+ * @author Nelson Jeanrenaud
+ */
+public class BatchQueryEngine implements AutoCloseable {
+    /** Number of chunks given to each thread on average, a larger value balances the load better. */
+    private static final int CHUNKS_PER_THREAD = 16;
+
+    /** Algorithm of each thread. */
+    private final ShortestPathAlgorithm[] algorithms;
+    /** Threads running the queries. */
+    private final ExecutorService executor;
+
+    /**
+     * Create an engine using one thread per available processor.
+     * @param factory creates the algorithm instances, every instance must use the same graph.
+     * @throws NullPointerException if the factory is null or returns null.
+     * @throws IllegalArgumentException if the instances don't use the same graph.
+     */
+    public BatchQueryEngine(Supplier<? extends ShortestPathAlgorithm> factory) {
+        this(factory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create an engine.
+     * @param factory creates the algorithm instances, every instance must use the same graph.
+     * @param nbThreads number of threads.
+     * @throws NullPointerException if the factory is null or returns null.
+     * @throws IllegalArgumentException if the number of threads is not positive or the instances don't use the same
+     * graph.
+     */
+    public BatchQueryEngine(Supplier<? extends ShortestPathAlgorithm> factory, int nbThreads) {
+        Objects.requireNonNull(factory, "factory cannot be null");
+        if (nbThreads <= 0) {
+            throw new IllegalArgumentException("The number of threads must be positive");
+        }
+        algorithms = new ShortestPathAlgorithm[nbThreads];
+        for (int i = 0; i < nbThreads; i++) {
+            algorithms[i] = Objects.requireNonNull(factory.get(), "factory cannot return null");
+            if (algorithms[i].getGraph() != algorithms[0].getGraph()) {
+                throw new IllegalArgumentException("All algorithms must use the same graph");
+            }
+        }
+        executor = Executors.newFixedThreadPool(nbThreads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get the graph used by the algorithms.
+     * @return the graph used by the algorithms.
+     */
+    public Digraph<Node, SimpleWeightedEdge<Node>> getGraph() {
+        return algorithms[0].getGraph();
+    }
+
+    /**
+     * Get the number of threads.
+     * @return the number of threads.
+     */
+    public int getNbThreads() {
+        return algorithms.length;
+    }
+
+    /**
+     * Run a batch of queries, waiting for the batch of another thread to complete first.
+     * @param queries the queries.
+     * @return the result of each query, in the order of the queries.
+     * @throws NullPointerException if queries is null or contains null.
+     * @throws IllegalArgumentException if a node of a query is not in the graph, checked before any query runs.
+     * @throws IllegalStateException if the engine has been closed.
+     */
+    public synchronized List<QueryResult> run(List<Query> queries) {
+        Objects.requireNonNull(queries, "queries cannot be null");
+        if (executor.isShutdown()) {
+            throw new IllegalStateException("The engine has been closed");
+        }
+        Query[] batch = queries.toArray(new Query[0]);
+        for (Query query : batch) {
+            Objects.requireNonNull(query, "queries cannot contain null");
+            if (!isInGraph(query.getSource()) || !isInGraph(query.getTarget())) {
+                throw new IllegalArgumentException("Query " + query + " is not in the graph");
+            }
+        }
+        QueryResult[] results = new QueryResult[batch.length];
+        AtomicInteger cursor = new AtomicInteger();
+        // Set by the first failed query, the other threads stop at their next query
+        AtomicBoolean isAborted = new AtomicBoolean();
+        int chunkSize = Math.max(1, batch.length / (algorithms.length * CHUNKS_PER_THREAD));
+
+        List<Future<?>> tasks = new ArrayList<>(algorithms.length);
+        for (ShortestPathAlgorithm algorithm : algorithms) {
+            tasks.add(executor.submit(() -> {
+                try {
+                    int begin;
+                    while (!isAborted.get() && (begin = cursor.getAndAdd(chunkSize)) < batch.length) {
+                        int end = Math.min(begin + chunkSize, batch.length);
+                        for (int i = begin; i < end && !isAborted.get(); i++) {
+                            results[i] = run(algorithm, batch[i]);
+                        }
+                    }
+                } catch (RuntimeException | Error e) {
+                    isAborted.set(true);
+                    throw e;
+                }
+            }));
+        }
+        // Every task is waited for, even after a failure, so that no thread still uses its algorithm when the next
+        // batch starts. Future.get also orders the writes of the threads before the reads of the results.
+        Throwable failure = null;
+        boolean isInterrupted = false;
+        for (Future<?> task : tasks) {
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                } catch (InterruptedException e) {
+                    isAborted.set(true);
+                    isInterrupted = true;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                    break;
+                }
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running the queries", failure);
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Run a query with an algorithm.
+     * @param algorithm the algorithm.
+     * @param query the query.
+     * @return the result of the query.
+     */
+    private static QueryResult run(ShortestPathAlgorithm algorithm, Query query) {
+        algorithm.run(query.getSource(), query.getTarget());
+        Path path;
+        try {
+            path = algorithm.getShortestPath();
+        } catch (Dijkstra.NoPathException e) {
+            path = null;
+        }
+        return new QueryResult(query, path, algorithm.getIteration());
+    }
+
+    /**
+     * Check that a node belongs to the graph by looking it up by id.
+     * @param node Node to check.
+     * @return true if the node is the vertex of the graph with the same id.
+     */
+    private boolean isInGraph(Node node) {
+        return node.id() >= 0 && node.id() < getGraph().getNVertices() && getGraph().getVertices().get(node.id()) == node;
+    }
+
+    /**
+     * Stop the threads, the engine can't be used afterwards.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
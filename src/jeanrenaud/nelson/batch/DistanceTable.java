@@ -0,0 +1,85 @@
+package jeanrenaud.nelson.batch;
+
+import jeanrenaud.nelson.dijkstra.SearchWorkspace;
+
+import java.util.Arrays;
+
+/**
+ * Shortest distances from a list of sources to a list of targets, stored row by row in a flat array:
+ * the distance from source i to target j is at index i * number of targets + j.
+ * @author Nelson Jeanrenaud
+ * @see DistanceTableEngine
+ */
+public class DistanceTable {
+    /** Distance of a target that can't be reached from a source. */
+    public static final long UNREACHED = SearchWorkspace.UNREACHED;
+
+    /** Number of sources, the rows of the table. */
+    private final int nbSources;
+    /** Number of targets, the columns of the table. */
+    private final int nbTargets;
+    /** Distances row by row. */
+    private final long[] distances;
+
+    /**
+     * Create a table.
+     * @param nbSources number of sources.
+     * @param nbTargets number of targets.
+     * @param distances distances row by row, owned by the table.
+     */
+    DistanceTable(int nbSources, int nbTargets, long[] distances) {
+        this.nbSources = nbSources;
+        this.nbTargets = nbTargets;
+        this.distances = distances;
+    }
+
+    /**
+     * Get the number of sources.
+     * @return the number of rows.
+     */
+    public int getNbSources() {
+        return nbSources;
+    }
+
+    /**
+     * Get the number of targets.
+     * @return the number of columns.
+     */
+    public int getNbTargets() {
+        return nbTargets;
+    }
+
+    /**
+     * Get the distance from a source to a target.
+     * @param source index of the source in the list of sources.
+     * @param target index of the target in the list of targets.
+     * @return the distance, {@link #UNREACHED} if there is no path.
+     * @throws IndexOutOfBoundsException if an index is out of the table.
+     */
+    public long getDistance(int source, int target) {
+        if (source < 0 || source >= nbSources || target < 0 || target >= nbTargets) {
+            throw new IndexOutOfBoundsException("(" + source + ", " + target + ") is out of the table");
+        }
+        return distances[source * nbTargets + target];
+    }
+
+    /**
+     * Get a copy of the distances row by row.
+     * @return the distances in a flat array.
+     */
+    public long[] toFlatArray() {
+        return distances.clone();
+    }
+
+    /**
+     * Get a copy of the distances, one array per source.
+     * @return the distances.
+     */
+    public long[][] toArray() {
+        long[][] rows = new long[nbSources][];
+        for (int i = 0; i < nbSources; i++) {
+            rows[i] = Arrays.copyOfRange(distances, i * nbTargets, (i + 1) * nbTargets);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,200 @@
+package jeanrenaud.nelson.batch;
+
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compute tables of shortest distances between sets of nodes on several threads.
+ * A table is filled by one pruned one-to-all search per source, which stops once every target is settled. When there
+ * are fewer targets than sources the searches start from the targets and follow the predecessors of the graph
+ * instead. Every thread owns its searches, the threads take the searches one by one from a shared cursor and write
+ * their own rows (or columns) of the table. The searches are reused by every table, so tables requested by several
+ * threads are computed one after the other.
+ * @author Nelson Jeanrenaud
+ */
+public class DistanceTableEngine implements AutoCloseable {
+    /** Graph of the searches. */
+    private final Digraph<Node, SimpleWeightedEdge<Node>> graph;
+    /** Forward search of each thread. */
+    private final PrunedDijkstra[] forward;
+    /** Backward search of each thread, created on first use. */
+    private final PrunedDijkstra[] backward;
+    /** Threads running the searches. */
+    private final ExecutorService executor;
+
+    /**
+     * Create an engine using one thread per available processor.
+     * @param graph the graph.
+     * @throws NullPointerException if the graph is null.
+     */
+    public DistanceTableEngine(Digraph<Node, SimpleWeightedEdge<Node>> graph) {
+        this(graph, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create an engine.
+     * @param graph the graph.
+     * @param nbThreads number of threads.
+     * @throws NullPointerException if the graph is null.
+     * @throws IllegalArgumentException if the number of threads is not positive.
+     */
+    public DistanceTableEngine(Digraph<Node, SimpleWeightedEdge<Node>> graph, int nbThreads) {
+        Objects.requireNonNull(graph, "graph cannot be null");
+        if (nbThreads <= 0) {
+            throw new IllegalArgumentException("The number of threads must be positive");
+        }
+        this.graph = graph;
+        this.forward = new PrunedDijkstra[nbThreads];
+        this.backward = new PrunedDijkstra[nbThreads];
+        for (int i = 0; i < nbThreads; i++) {
+            forward[i] = new PrunedDijkstra(graph, false);
+        }
+        executor = Executors.newFixedThreadPool(nbThreads, runnable -> {
+            Thread thread = new Thread(runnable, "distance-table");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get the graph of the searches.
+     * @return the graph.
+     */
+    public Digraph<Node, SimpleWeightedEdge<Node>> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Get the number of threads.
+     * @return the number of threads.
+     */
+    public int getNbThreads() {
+        return forward.length;
+    }
+
+    /**
+     * Compute the distances from a source to every target.
+     * @param source the source.
+     * @param targets the targets.
+     * @return a table with a single row.
+     * @throws NullPointerException if an argument is null or targets contains null.
+     * @throws IllegalArgumentException if a node is not in the graph.
+     * @throws IllegalStateException if the engine has been closed.
+     */
+    public DistanceTable oneToMany(Node source, List<Node> targets) {
+        Objects.requireNonNull(source, "source cannot be null");
+        return manyToMany(List.of(source), targets);
+    }
+
+    /**
+     * Compute the distance from every source to every target, waiting for the table of another thread to complete
+     * first.
+     * @param sources the sources, the rows of the table.
+     * @param targets the targets, the columns of the table.
+     * @return the table of the distances.
+     * @throws NullPointerException if a list is null or contains null.
+     * @throws IllegalArgumentException if a node is not in the graph.
+     * @throws IllegalStateException if the engine has been closed.
+     * @throws ArithmeticException if the table has more cells than an array can hold.
+     */
+    public synchronized DistanceTable manyToMany(List<Node> sources, List<Node> targets) {
+        Node[] rows = toArray(sources, "sources");
+        Node[] columns = toArray(targets, "targets");
+        if (executor.isShutdown()) {
+            throw new IllegalStateException("The engine has been closed");
+        }
+        long[] distances = new long[Math.multiplyExact(rows.length, columns.length)];
+        if (distances.length == 0) {
+            return new DistanceTable(rows.length, columns.length, distances);
+        }
+
+        // Search from the smaller set, a backward search from a target gives its column
+        boolean isBackward = columns.length < rows.length;
+        Node[] origins = isBackward ? columns : rows;
+        Node[] others = isBackward ? rows : columns;
+        AtomicInteger cursor = new AtomicInteger();
+        List<Future<?>> tasks = new ArrayList<>(forward.length);
+        for (int thread = 0; thread < forward.length; thread++) {
+            PrunedDijkstra search = getSearch(thread, isBackward);
+            tasks.add(executor.submit(() -> {
+                int origin;
+                while ((origin = cursor.getAndIncrement()) < origins.length) {
+                    search.run(origins[origin], others);
+                    for (int other = 0; other < others.length; other++) {
+                        int index = isBackward ? other * columns.length + origin : origin * columns.length + other;
+                        distances[index] = search.getDistance(others[other].id());
+                    }
+                }
+            }));
+        }
+        // Future.get orders the writes of the threads before the reads of the table
+        try {
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            tasks.forEach(task -> task.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing the table", e);
+        } catch (ExecutionException e) {
+            tasks.forEach(task -> task.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return new DistanceTable(rows.length, columns.length, distances);
+    }
+
+    /**
+     * Get the search of a thread, the backward ones are only built when needed.
+     * @param thread index of the thread.
+     * @param isBackward true for the backward search.
+     * @return the search.
+     */
+    private PrunedDijkstra getSearch(int thread, boolean isBackward) {
+        if (!isBackward) {
+            return forward[thread];
+        }
+        if (backward[thread] == null) {
+            backward[thread] = new PrunedDijkstra(graph, true);
+        }
+        return backward[thread];
+    }
+
+    /**
+     * Check the nodes of a list.
+     * @param nodes the nodes.
+     * @param name name of the list in the error messages.
+     * @return the nodes in an array.
+     */
+    private Node[] toArray(List<Node> nodes, String name) {
+        Objects.requireNonNull(nodes, name + " cannot be null");
+        Node[] array = nodes.toArray(new Node[0]);
+        for (Node node : array) {
+            Objects.requireNonNull(node, name + " cannot contain null");
+            if (node.id() < 0 || node.id() >= graph.getNVertices() || graph.getVertices().get(node.id()) != node) {
+                throw new IllegalArgumentException("Node " + node.id() + " is not in the graph");
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Stop the threads, the engine can't be used afterwards.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
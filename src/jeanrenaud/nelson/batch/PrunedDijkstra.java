@@ -0,0 +1,61 @@
+package jeanrenaud.nelson.batch;
+
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.dijkstra.Dijkstra;
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.Arrays;
+
+/**
+ * One-to-all Dijkstra search that stops once a given set of nodes is settled.
+ * Nodes that the strongly connected components prove unreachable are not waited for.
+ * @author Nelson Jeanrenaud
+ * @see DistanceTableEngine
+ */
+class PrunedDijkstra extends Dijkstra {
+    /** Equal to the current search for the nodes that have to be settled. */
+    private final int[] targetStamps;
+    /** Current search. */
+    private int epoch;
+    /** Number of reachable nodes of the set that are not settled yet. */
+    private int remaining;
+
+    /**
+     * @param graph the graph.
+     * @param backward true to compute the distances to the origin of the search instead of from it.
+     */
+    PrunedDijkstra(Digraph<Node, SimpleWeightedEdge<Node>> graph, boolean backward) {
+        super(graph, backward);
+        this.targetStamps = new int[graph.getNVertices()];
+    }
+
+    /**
+     * Settle the nodes from an origin until every node of the set is settled.
+     * @param origin origin of the search.
+     * @param nodes nodes whose distance is needed, they may contain duplicates.
+     */
+    void run(Node origin, Node[] nodes) {
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(targetStamps, 0);
+            epoch = 1;
+        }
+        remaining = 0;
+        for (Node node : nodes) {
+            if (targetStamps[node.id()] != epoch && mayReach(origin, node)) {
+                targetStamps[node.id()] = epoch;
+                remaining++;
+            }
+        }
+        initialize(origin, null);
+        if (remaining > 0) {
+            while (!doIteration()) {
+            }
+        }
+    }
+
+    @Override
+    protected boolean isFinished(int removedId) {
+        return removedId < 0 || (targetStamps[removedId] == epoch && --remaining == 0);
+    }
+}
@@ -0,0 +1,51 @@
+package jeanrenaud.nelson.batch;
+
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.Objects;
+
+/**
+ * Shortest path query between two nodes.
+ * @author Nelson Jeanrenaud
+ * @see BatchQueryEngine
+ */
+public class Query {
+    /** Source node of the query. */
+    private final Node source;
+    /** Target node of the query. */
+    private final Node target;
+
+    /**
+     * Create a new query.
+     * @param source source node
+     * @param target target node
+     * @throws NullPointerException if source or target are null
+     */
+    public Query(Node source, Node target) {
+        Objects.requireNonNull(source, "source cannot be null");
+        Objects.requireNonNull(target, "target cannot be null");
+        this.source = source;
+        this.target = target;
+    }
+
+    /**
+     * Get the source node.
+     * @return source node
+     */
+    public Node getSource() {
+        return source;
+    }
+
+    /**
+     * Get the target node.
+     * @return target node
+     */
+    public Node getTarget() {
+        return target;
+    }
+
+    @Override
+    public String toString() {
+        return source.id() + " -> " + target.id();
+    }
+}
@@ -0,0 +1,69 @@
+package jeanrenaud.nelson.batch;
+
+import jeanrenaud.nelson.dijkstra.Path;
+
+import java.util.Objects;
+
+/**
+ * Result of a query run by a {@link BatchQueryEngine}.
+ * @author Nelson Jeanrenaud
+ */
+public class QueryResult {
+    /** Query answered. */
+    private final Query query;
+    /** Shortest path found, null if the target can't be reached. */
+    private final Path path;
+    /** Number of iterations of the algorithm. */
+    private final long iteration;
+
+    /**
+     * Create a new query result.
+     * @param query query answered
+     * @param path shortest path, null if the target can't be reached
+     * @param iteration number of iterations of the algorithm
+     * @throws NullPointerException if query is null
+     */
+    public QueryResult(Query query, Path path, long iteration) {
+        Objects.requireNonNull(query, "query cannot be null");
+        this.query = query;
+        this.path = path;
+        this.iteration = iteration;
+    }
+
+    /**
+     * Get the query answered.
+     * @return query answered
+     */
+    public Query getQuery() {
+        return query;
+    }
+
+    /**
+     * Get the shortest path.
+     * @return shortest path, null if the target can't be reached
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Check if a path was found.
+     * @return true if the target can be reached from the source
+     */
+    public boolean hasPath() {
+        return path != null;
+    }
+
+    /**
+     * Get the number of iterations of the algorithm.
+     * @return number of iterations
+     */
+    public long getIteration() {
+        return iteration;
+    }
+
+    @Override
+    public String toString() {
+        return query + " : " + (path == null ? "no path" : path.totalWeight());
+    }
+}
@@ -0,0 +1,187 @@
+package jeanrenaud.nelson.ch;
+
+import graph.core.impl.CompactAdjacency;
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.dijkstra.Path;
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Graph augmented with the shortcuts of a contraction hierarchy.
+ * Every node has a rank, the edges (original or shortcut) are split between the upward graph, holding the edges
+ * leading to a higher rank, and the downward graph, holding the edges coming from a higher rank stored at their
+ * destination. A shortest path is always an upward path followed by a downward path.
+ * @author Nelson Jeanrenaud
+ * @see ContractionHierarchyQuery
+ */
+public class ContractionHierarchy {
+    /** Original graph. */
+    private final Digraph<Node, SimpleWeightedEdge<Node>> graph;
+    /** Number of original edges, the edges with a smaller id are the edges of the original adjacency. */
+    private final int nbOriginalEdges;
+    /** Rank of each node, the first node contracted has rank 0. */
+    private final int[] rank;
+    /** Edges leading to a higher rank. */
+    private final CompactAdjacency upward;
+    /** Edge id of each edge of the upward graph. */
+    private final int[] upwardIds;
+    /** Edges coming from a higher rank, the target of an edge of this graph is the origin of the real edge. */
+    private final CompactAdjacency downward;
+    /** Edge id of each edge of the downward graph. */
+    private final int[] downwardIds;
+    /** Origin, destination and weight of each edge. */
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final long[] edgeWeight;
+    /** Edges replaced by each shortcut, -1 for original edges. */
+    private final int[] edgeFirstChild;
+    private final int[] edgeSecondChild;
+
+    /**
+     * Build the hierarchy of a graph.
+     * @param graph the original graph.
+     * @param contractor contractor that contracted every node.
+     * @param rank rank of each node.
+     */
+    private ContractionHierarchy(Digraph<Node, SimpleWeightedEdge<Node>> graph, Contractor contractor, int[] rank) {
+        this.graph = graph;
+        this.nbOriginalEdges = graph.getCompactAdjacency(SimpleWeightedEdge.WEIGHER).getNEdges();
+        this.rank = rank;
+        this.edgeFrom = contractor.getEdgeFrom();
+        this.edgeTo = contractor.getEdgeTo();
+        this.edgeWeight = contractor.getEdgeWeight();
+        this.edgeFirstChild = contractor.getEdgeFirstChild();
+        this.edgeSecondChild = contractor.getEdgeSecondChild();
+
+        int[][] up = contractor.hierarchyEdgeIds(false);
+        this.upwardIds = up[1];
+        this.upward = new CompactAdjacency(up[0], select(edgeTo, upwardIds), select(edgeWeight, upwardIds));
+        int[][] down = contractor.hierarchyEdgeIds(true);
+        this.downwardIds = down[1];
+        this.downward = new CompactAdjacency(down[0], select(edgeFrom, downwardIds), select(edgeWeight, downwardIds));
+    }
+
+    /**
+     * Contract every node of a graph.
+     * @param graph the graph to preprocess.
+     * @return the contraction hierarchy of the graph.
+     * @throws NullPointerException if the graph is null.
+     */
+    public static ContractionHierarchy preprocess(Digraph<Node, SimpleWeightedEdge<Node>> graph) {
+        Objects.requireNonNull(graph, "The graph cannot be null.");
+        Contractor contractor = new Contractor(graph.getCompactAdjacency(SimpleWeightedEdge.WEIGHER));
+        int[] rank = contractor.contract();
+        return new ContractionHierarchy(graph, contractor, rank);
+    }
+
+    /**
+     * Get the original graph.
+     * @return the original graph.
+     */
+    public Digraph<Node, SimpleWeightedEdge<Node>> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Get the rank of a node.
+     * @param id index of the node.
+     * @return the position of the node in the contraction order.
+     */
+    public int getRank(int id) {
+        return rank[id];
+    }
+
+    /**
+     * Get the edges leading to a higher rank.
+     * @return the upward graph.
+     */
+    public CompactAdjacency getUpward() {
+        return upward;
+    }
+
+    /**
+     * Get the edges coming from a higher rank. The edges are reversed: they are stored at the destination of the
+     * real edge and lead to its origin.
+     * @return the reversed downward graph.
+     */
+    public CompactAdjacency getDownward() {
+        return downward;
+    }
+
+    /**
+     * Get the id of an edge of the upward graph.
+     * @param edge index of the edge in the upward graph.
+     * @return the id of the edge, to be unpacked with {@link #unpack(int, Path.Builder)}.
+     */
+    public int getUpwardEdgeId(int edge) {
+        return upwardIds[edge];
+    }
+
+    /**
+     * Get the id of an edge of the downward graph.
+     * @param edge index of the edge in the downward graph.
+     * @return the id of the edge, to be unpacked with {@link #unpack(int, Path.Builder)}.
+     */
+    public int getDownwardEdgeId(int edge) {
+        return downwardIds[edge];
+    }
+
+    /**
+     * Get the number of shortcuts of the hierarchy.
+     * @return the number of shortcuts.
+     */
+    public int getNbShortcuts() {
+        return (int) IntStream.concat(Arrays.stream(upwardIds), Arrays.stream(downwardIds))
+                .filter(id -> id >= nbOriginalEdges).count();
+    }
+
+    /**
+     * Append the original edges represented by an edge of the hierarchy to a path.
+     * @param edge id of the edge.
+     * @param path the path to extend.
+     */
+    public void unpack(int edge, Path.Builder path) {
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = edge;
+        while (size > 0) {
+            int current = stack[--size];
+            if (edgeFirstChild[current] < 0) {
+                path.append(edgeFrom[current], edgeTo[current], edgeWeight[current]);
+                continue;
+            }
+            if (size + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+            }
+            // The first child is on top so it is appended first
+            stack[size++] = edgeSecondChild[current];
+            stack[size++] = edgeFirstChild[current];
+        }
+    }
+
+    /**
+     * @return the values of the given ids.
+     */
+    private static int[] select(int[] values, int[] ids) {
+        int[] selected = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            selected[i] = values[ids[i]];
+        }
+        return selected;
+    }
+
+    /**
+     * @return the values of the given ids.
+     */
+    private static long[] select(long[] values, int[] ids) {
+        long[] selected = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            selected[i] = values[ids[i]];
+        }
+        return selected;
+    }
+}
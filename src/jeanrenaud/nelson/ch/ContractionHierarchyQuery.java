@@ -0,0 +1,283 @@
+package jeanrenaud.nelson.ch;
+
+import graph.core.impl.CompactAdjacency;
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.dijkstra.DijkstraPriorityQueue;
+import jeanrenaud.nelson.dijkstra.Path;
+import jeanrenaud.nelson.dijkstra.ShortestPathAlgorithm;
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Shortest path query on a contraction hierarchy.
+ * A forward search from the source and a backward search from the target only follow edges leading to a higher
+ * rank. Each search stops once its smallest key reaches the best distance found at a node reached by both, the
+ * shortcuts of the best path are then unpacked into original edges.
+ * @author Nelson Jeanrenaud
+ */
+public class ContractionHierarchyQuery implements ShortestPathAlgorithm {
+    /** Hierarchy on which the queries are run. */
+    private final ContractionHierarchy hierarchy;
+    /** Search from the source in the upward graph. */
+    private final UpwardSearch forward;
+    /** Search from the target in the reversed downward graph. */
+    private final UpwardSearch backward;
+    /** Shortest distance found so far. */
+    private long shortestPathLength;
+    /** Node where the forward and backward paths of the shortest path found so far meet, -1 if none. */
+    private int meetingNode;
+    /** Number of nodes settled by both searches. */
+    private long iteration;
+    /** if the algorithm has been initialized. */
+    private boolean isInitialized;
+
+    /**
+     * Constructor.
+     * @param hierarchy the contraction hierarchy of the graph.
+     * @throws NullPointerException if the hierarchy is null.
+     */
+    public ContractionHierarchyQuery(ContractionHierarchy hierarchy) {
+        Objects.requireNonNull(hierarchy, "The hierarchy cannot be null.");
+        this.hierarchy = hierarchy;
+        this.forward = new UpwardSearch(hierarchy.getUpward(), hierarchy.getDownward());
+        this.backward = new UpwardSearch(hierarchy.getDownward(), hierarchy.getUpward());
+        this.isInitialized = false;
+    }
+
+    @Override
+    public Digraph<Node, SimpleWeightedEdge<Node>> getGraph() {
+        return hierarchy.getGraph();
+    }
+
+    /**
+     * Calculate the shortest path from the source to the target.
+     * @param source the source node.
+     * @param target the target node.
+     * @throws NullPointerException if the source or target node is null.
+     * @throws IllegalArgumentException if the source or target node is not in the graph.
+     */
+    @Override
+    public void run(Node source, Node target) {
+        Objects.requireNonNull(source, "The source node cannot be null.");
+        Objects.requireNonNull(target, "The target node cannot be null.");
+        if (!isInGraph(source) || !isInGraph(target)) {
+            throw new IllegalArgumentException("Source or target node is not in the graph");
+        }
+        shortestPathLength = Long.MAX_VALUE;
+        meetingNode = -1;
+        iteration = 0;
+        forward.initialize(source.id());
+        backward.initialize(target.id());
+        isInitialized = true;
+        if (!getGraph().getStronglyConnectedComponents().mayReach(source.id(), target.id())) {
+            return;
+        }
+
+        while (true) {
+            boolean forwardActive = forward.getMinKey() < shortestPathLength;
+            boolean backwardActive = backward.getMinKey() < shortestPathLength;
+            if (!forwardActive && !backwardActive) {
+                break;
+            }
+            boolean forwardTurn = forwardActive && (!backwardActive || forward.getMinKey() <= backward.getMinKey());
+            UpwardSearch side = forwardTurn ? forward : backward;
+            UpwardSearch other = forwardTurn ? backward : forward;
+            int node = side.settleNext();
+            iteration++;
+            if (other.isReached(node) && side.getDistance(node) + other.getDistance(node) < shortestPathLength) {
+                shortestPathLength = side.getDistance(node) + other.getDistance(node);
+                meetingNode = node;
+            }
+        }
+    }
+
+    /**
+     * Get the shortest path found by the last query.
+     * @return the shortest path, or null if the target can't be reached.
+     * @throws IllegalStateException if the algorithm has not been initialized.
+     */
+    @Override
+    public Path getShortestPath() {
+        if (!isInitialized) {
+            throw new IllegalStateException("The algorithm has not been initialized.");
+        }
+        if (meetingNode < 0) {
+            return null;
+        }
+        // Upward part, collected from the meeting node back to the source
+        int[] upwardPart = new int[16];
+        int size = 0;
+        for (int node = meetingNode; forward.getParentEdge(node) >= 0; node = forward.getParent(node)) {
+            if (size == upwardPart.length) {
+                upwardPart = Arrays.copyOf(upwardPart, 2 * size);
+            }
+            upwardPart[size++] = hierarchy.getUpwardEdgeId(forward.getParentEdge(node));
+        }
+        Path.Builder path = new Path.Builder(getGraph().getVertices());
+        for (int i = size - 1; i >= 0; i--) {
+            hierarchy.unpack(upwardPart[i], path);
+        }
+        // Downward part, already in the order of the path
+        for (int node = meetingNode; backward.getParentEdge(node) >= 0; node = backward.getParent(node)) {
+            hierarchy.unpack(hierarchy.getDownwardEdgeId(backward.getParentEdge(node)), path);
+        }
+        return path.build();
+    }
+
+    @Override
+    public long getIteration() {
+        return iteration;
+    }
+
+    @Override
+    public String getName() {
+        return "Contraction Hierarchies";
+    }
+
+    /**
+     * Check that a node belongs to the graph by looking it up by id.
+     * @param node Node to check.
+     * @return true if the node is the vertex of the graph with the same id.
+     */
+    private boolean isInGraph(Node node) {
+        return node.id() >= 0 && node.id() < getGraph().getNVertices() && getGraph().getVertices().get(node.id()) == node;
+    }
+
+    /**
+     * Dijkstra search restricted to the edges leading to a higher rank.
+     * A settled node is stalled (its edges are not relaxed) when a higher ranked node reaches it with a shorter
+     * distance through an edge of the opposite direction: its distance is not exact and cannot lead to the
+     * shortest path.
+     */
+    private static class UpwardSearch {
+        /** Edges followed by the search. */
+        private final CompactAdjacency adjacency;
+        /** Edges coming from a higher rank in the direction of the search, used to stall nodes. */
+        private final CompactAdjacency stallAdjacency;
+        /** Distance, previous node and index of the previous edge of each node. */
+        private final long[] distance;
+        private final int[] parent;
+        private final int[] parentEdge;
+        /** Search in which each node was last reached. */
+        private final int[] stamps;
+        /** Current search. */
+        private int epoch;
+        /** Queue of the nodes to settle. */
+        private final DijkstraPriorityQueue queue;
+
+        /**
+         * @param adjacency edges followed by the search.
+         * @param stallAdjacency edges coming from a higher rank in the direction of the search.
+         */
+        private UpwardSearch(CompactAdjacency adjacency, CompactAdjacency stallAdjacency) {
+            int nbVertices = adjacency.getNVertices();
+            this.adjacency = adjacency;
+            this.stallAdjacency = stallAdjacency;
+            this.distance = new long[nbVertices];
+            this.parent = new int[nbVertices];
+            this.parentEdge = new int[nbVertices];
+            this.stamps = new int[nbVertices];
+            this.queue = new DijkstraPriorityQueue(nbVertices);
+        }
+
+        /**
+         * Start a new search.
+         * @param source origin of the search.
+         */
+        private void initialize(int source) {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                epoch = 1;
+            }
+            queue.clear();
+            label(source, 0, -1, -1);
+            queue.add(source, 0);
+        }
+
+        /**
+         * @return the smallest key in the queue, Long.MAX_VALUE if the queue is empty.
+         */
+        private long getMinKey() {
+            return queue.isEmpty() ? Long.MAX_VALUE : queue.peekKey();
+        }
+
+        /**
+         * Settle the node with the smallest distance and relax its edges.
+         * @return the settled node.
+         */
+        private int settleNext() {
+            int node = queue.poll();
+            if (isStalled(node)) {
+                return node;
+            }
+            for (int edge = adjacency.begin(node); edge < adjacency.end(node); edge++) {
+                int successor = adjacency.target(edge);
+                long newDistance = distance[node] + adjacency.weight(edge);
+                if (newDistance < getDistance(successor)) {
+                    label(successor, newDistance, node, edge);
+                    queue.update(successor, newDistance);
+                }
+            }
+            return node;
+        }
+
+        /**
+         * @param node index of a settled node.
+         * @return true if a higher ranked node already reached reaches the node with a shorter distance.
+         */
+        private boolean isStalled(int node) {
+            for (int edge = stallAdjacency.begin(node); edge < stallAdjacency.end(node); edge++) {
+                long viaDistance = getDistance(stallAdjacency.target(edge));
+                if (viaDistance != Long.MAX_VALUE && viaDistance + stallAdjacency.weight(edge) < distance[node]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @param node index of the node.
+         * @return true if the node has been reached by the current search.
+         */
+        private boolean isReached(int node) {
+            return stamps[node] == epoch;
+        }
+
+        /**
+         * @param node index of the node.
+         * @return the distance of the node, Long.MAX_VALUE if it has not been reached.
+         */
+        private long getDistance(int node) {
+            return isReached(node) ? distance[node] : Long.MAX_VALUE;
+        }
+
+        /**
+         * @param node index of a reached node.
+         * @return the previous node, -1 for the origin.
+         */
+        private int getParent(int node) {
+            return parent[node];
+        }
+
+        /**
+         * @param node index of a reached node.
+         * @return the index of the previous edge in the adjacency, -1 for the origin.
+         */
+        private int getParentEdge(int node) {
+            return parentEdge[node];
+        }
+
+        /**
+         * Set the label of a node.
+         */
+        private void label(int node, long newDistance, int previous, int edge) {
+            stamps[node] = epoch;
+            distance[node] = newDistance;
+            parent[node] = previous;
+            parentEdge[node] = edge;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package jeanrenaud.nelson.ch;
+
+import graph.core.impl.CompactAdjacency;
+import jeanrenaud.nelson.dijkstra.DijkstraPriorityQueue;
+
+import java.util.Arrays;
+
+/**
+ * Preprocessing stage of the contraction hierarchies.
+ * Nodes are contracted one by one in the order of their priority (edge difference plus number of contracted
+ * neighbours plus depth, updated lazily). Contracting a node v adds a shortcut u -> w for every pair of remaining neighbours
+ * whose shortest path goes through v, which is checked with a bounded witness search.
+ * @author Nelson Jeanrenaud
+ * @see ContractionHierarchy
+ */
+class Contractor {
+    /** Maximum number of nodes settled by a witness search. A missed witness only costs an extra shortcut. */
+    private static final int WITNESS_SETTLED_LIMIT = 200;
+    /** Maximum number of nodes settled by a witness search when only simulating a contraction. */
+    private static final int SIMULATION_SETTLED_LIMIT = 30;
+    /** Initial capacity of the edge arrays, in multiples of the number of original edges. */
+    private static final int EDGE_CAPACITY_FACTOR = 2;
+
+    /** Number of nodes. */
+    private final int nbVertices;
+
+    /** Origin, destination and weight of each edge. Ids below the number of original edges are original edges. */
+    private int[] edgeFrom;
+    private int[] edgeTo;
+    private long[] edgeWeight;
+    /** Edges replaced by each shortcut, -1 for original edges. */
+    private int[] edgeFirstChild;
+    private int[] edgeSecondChild;
+    /** Number of edges. */
+    private int nbEdges;
+
+    /** Edges leaving and entering each node that are not contracted yet. */
+    private final EdgeList[] outEdges;
+    private final EdgeList[] inEdges;
+    /** Edges leading to a higher rank from each node, and edges coming from a higher rank to each node. */
+    private final EdgeList[] upwardEdges;
+    private final EdgeList[] downwardEdges;
+    /** Number of contracted neighbours of each node. */
+    private final int[] deletedNeighbours;
+    /** Depth of each node in the hierarchy built so far, one more than its deepest contracted neighbour. */
+    private final int[] level;
+
+    /** Distances of the witness search, valid when the stamp equals the current epoch. */
+    private final long[] witnessDistance;
+    private final int[] witnessStamp;
+    private int witnessEpoch;
+    /** Equal to the current epoch for the nodes the witness search has to reach. */
+    private final int[] targetStamp;
+    /** Queue of the witness search. */
+    private final DijkstraPriorityQueue witnessQueue;
+
+    /**
+     * Prepare the contraction of a graph.
+     * @param adjacency successors of the graph.
+     */
+    Contractor(CompactAdjacency adjacency) {
+        this.nbVertices = adjacency.getNVertices();
+        int capacity = Math.max(16, EDGE_CAPACITY_FACTOR * adjacency.getNEdges());
+        this.edgeFrom = new int[capacity];
+        this.edgeTo = new int[capacity];
+        this.edgeWeight = new long[capacity];
+        this.edgeFirstChild = new int[capacity];
+        this.edgeSecondChild = new int[capacity];
+        this.outEdges = new EdgeList[nbVertices];
+        this.inEdges = new EdgeList[nbVertices];
+        this.upwardEdges = new EdgeList[nbVertices];
+        this.downwardEdges = new EdgeList[nbVertices];
+        for (int v = 0; v < nbVertices; v++) {
+            outEdges[v] = new EdgeList();
+            inEdges[v] = new EdgeList();
+            upwardEdges[v] = new EdgeList();
+            downwardEdges[v] = new EdgeList();
+        }
+        this.deletedNeighbours = new int[nbVertices];
+        this.level = new int[nbVertices];
+        this.witnessDistance = new long[nbVertices];
+        this.witnessStamp = new int[nbVertices];
+        this.targetStamp = new int[nbVertices];
+        this.witnessQueue = new DijkstraPriorityQueue(nbVertices);
+
+        for (int from = 0; from < nbVertices; from++) {
+            for (int edge = adjacency.begin(from); edge < adjacency.end(from); edge++) {
+                int id = addEdge(from, adjacency.target(edge), adjacency.weight(edge), -1, -1);
+                if (from != adjacency.target(edge)) {
+                    outEdges[from].add(id);
+                    inEdges[adjacency.target(edge)].add(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Contract every node of the graph.
+     * @return the rank of each node, the first node contracted has rank 0.
+     */
+    int[] contract() {
+        DijkstraPriorityQueue order = new DijkstraPriorityQueue(nbVertices);
+        for (int v = 0; v < nbVertices; v++) {
+            order.add(v, priority(v));
+        }
+        int[] rank = new int[nbVertices];
+        int nextRank = 0;
+        while (!order.isEmpty()) {
+            int v = order.poll();
+            // Lazy update: the priority may have changed since it was computed
+            long priority = priority(v);
+            if (!order.isEmpty() && priority > order.peekKey()) {
+                order.add(v, priority);
+                continue;
+            }
+            rank[v] = nextRank++;
+            // Neighbours keep their queued priority, it is recomputed when they reach the top of the queue
+            for (int neighbour : contractNode(v)) {
+                deletedNeighbours[neighbour]++;
+                level[neighbour] = Math.max(level[neighbour], level[v] + 1);
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Get the edges of the hierarchy once all the nodes are contracted, grouped by their lowest ranked node.
+     * @param downward false for the edges leading to a higher rank, true for the edges coming from a higher rank.
+     * @return the offsets of each node (index 0) and the edge ids (index 1) in CSR layout.
+     */
+    int[][] hierarchyEdgeIds(boolean downward) {
+        EdgeList[] lists = downward ? downwardEdges : upwardEdges;
+        int[] offsets = new int[nbVertices + 1];
+        for (int v = 0; v < nbVertices; v++) {
+            offsets[v + 1] = offsets[v] + lists[v].size;
+        }
+        int[] ids = new int[offsets[nbVertices]];
+        for (int v = 0; v < nbVertices; v++) {
+            System.arraycopy(lists[v].items, 0, ids, offsets[v], lists[v].size);
+        }
+        return new int[][]{offsets, ids};
+    }
+
+    /** @return origin of each edge. */
+    int[] getEdgeFrom() {
+        return Arrays.copyOf(edgeFrom, nbEdges);
+    }
+
+    /** @return destination of each edge. */
+    int[] getEdgeTo() {
+        return Arrays.copyOf(edgeTo, nbEdges);
+    }
+
+    /** @return weight of each edge. */
+    long[] getEdgeWeight() {
+        return Arrays.copyOf(edgeWeight, nbEdges);
+    }
+
+    /** @return first edge replaced by each shortcut, -1 for original edges. */
+    int[] getEdgeFirstChild() {
+        return Arrays.copyOf(edgeFirstChild, nbEdges);
+    }
+
+    /** @return second edge replaced by each shortcut, -1 for original edges. */
+    int[] getEdgeSecondChild() {
+        return Arrays.copyOf(edgeSecondChild, nbEdges);
+    }
+
+    /**
+     * Contract a node: add the needed shortcuts, move its remaining edges to the hierarchy and remove them
+     * from the neighbours.
+     * @param v node to contract.
+     * @return the neighbours of the node that are not contracted yet.
+     */
+    private int[] contractNode(int v) {
+        processShortcuts(v, true, WITNESS_SETTLED_LIMIT);
+
+        EdgeList out = outEdges[v];
+        EdgeList in = inEdges[v];
+        int[] neighbours = new int[out.size + in.size];
+        int nbNeighbours = 0;
+        for (int i = 0; i < out.size; i++) {
+            int edge = out.items[i];
+            upwardEdges[v].add(edge);
+            inEdges[edgeTo[edge]].remove(edge);
+            neighbours[nbNeighbours++] = edgeTo[edge];
+        }
+        for (int i = 0; i < in.size; i++) {
+            int edge = in.items[i];
+            downwardEdges[v].add(edge);
+            outEdges[edgeFrom[edge]].remove(edge);
+            neighbours[nbNeighbours++] = edgeFrom[edge];
+        }
+        out.size = 0;
+        in.size = 0;
+        return Arrays.stream(neighbours, 0, nbNeighbours).distinct().toArray();
+    }
+
+    /**
+     * Get the contraction priority of a node: edge difference plus number of contracted neighbours plus depth.
+     * @param v node.
+     * @return the priority, smaller is contracted first.
+     */
+    private long priority(int v) {
+        int shortcuts = processShortcuts(v, false, SIMULATION_SETTLED_LIMIT);
+        int edgeDifference = shortcuts - outEdges[v].size - inEdges[v].size;
+        return (long) edgeDifference + deletedNeighbours[v] + level[v];
+    }
+
+    /**
+     * Find the shortcuts needed to contract a node.
+     * @param v node to contract.
+     * @param add true to add the shortcuts, false to only count them.
+     * @param settledLimit maximum number of nodes settled by each witness search.
+     * @return the number of shortcuts needed.
+     */
+    private int processShortcuts(int v, boolean add, int settledLimit) {
+        EdgeList in = inEdges[v];
+        EdgeList out = outEdges[v];
+        int shortcuts = 0;
+        long maxOutWeight = 0;
+        for (int j = 0; j < out.size; j++) {
+            maxOutWeight = Math.max(maxOutWeight, edgeWeight[out.items[j]]);
+        }
+        for (int i = 0; i < in.size; i++) {
+            int inEdge = in.items[i];
+            int u = edgeFrom[inEdge];
+            witnessSearch(u, v, edgeWeight[inEdge] + maxOutWeight, settledLimit, out);
+            for (int j = 0; j < out.size; j++) {
+                int outEdge = out.items[j];
+                int w = edgeTo[outEdge];
+                if (w == u) {
+                    continue;
+                }
+                long via = edgeWeight[inEdge] + edgeWeight[outEdge];
+                if (witnessDistance(w) > via) {
+                    shortcuts++;
+                    if (add) {
+                        addShortcut(u, w, via, inEdge, outEdge);
+                    }
+                }
+            }
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Dijkstra from a node on the remaining graph without the node being contracted.
+     * @param source origin of the search.
+     * @param excluded node being contracted.
+     * @param maxDistance distance after which the search stops.
+     * @param settledLimit maximum number of nodes settled.
+     * @param targetEdges edges leaving the node being contracted, the search stops once all their destinations
+     *                    are settled.
+     */
+    private void witnessSearch(int source, int excluded, long maxDistance, int settledLimit, EdgeList targetEdges) {
+        witnessEpoch++;
+        witnessQueue.clear();
+        int remainingTargets = 0;
+        for (int i = 0; i < targetEdges.size; i++) {
+            int target = edgeTo[targetEdges.items[i]];
+            if (targetStamp[target] != witnessEpoch) {
+                targetStamp[target] = witnessEpoch;
+                remainingTargets++;
+            }
+        }
+        witnessStamp[source] = witnessEpoch;
+        witnessDistance[source] = 0;
+        witnessQueue.add(source, 0);
+        int settled = 0;
+        while (!witnessQueue.isEmpty() && witnessQueue.peekKey() <= maxDistance && settled < settledLimit
+                && remainingTargets > 0) {
+            int u = witnessQueue.poll();
+            settled++;
+            if (targetStamp[u] == witnessEpoch) {
+                remainingTargets--;
+            }
+            EdgeList out = outEdges[u];
+            for (int i = 0; i < out.size; i++) {
+                int edge = out.items[i];
+                int w = edgeTo[edge];
+                if (w == excluded) {
+                    continue;
+                }
+                long distance = witnessDistance[u] + edgeWeight[edge];
+                if (distance < witnessDistance(w)) {
+                    witnessStamp[w] = witnessEpoch;
+                    witnessDistance[w] = distance;
+                    witnessQueue.update(w, distance);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param v node.
+     * @return the distance found by the last witness search, Long.MAX_VALUE if the node was not reached.
+     */
+    private long witnessDistance(int v) {
+        return witnessStamp[v] == witnessEpoch ? witnessDistance[v] : Long.MAX_VALUE;
+    }
+
+    /**
+     * Add a shortcut, replacing a longer edge between the same nodes.
+     * @param u origin of the shortcut.
+     * @param w destination of the shortcut.
+     * @param weight weight of the shortcut.
+     * @param firstChild edge from u to the contracted node.
+     * @param secondChild edge from the contracted node to w.
+     */
+    private void addShortcut(int u, int w, long weight, int firstChild, int secondChild) {
+        EdgeList out = outEdges[u];
+        for (int i = 0; i < out.size; i++) {
+            int edge = out.items[i];
+            if (edgeTo[edge] == w) {
+                if (edgeWeight[edge] <= weight) {
+                    return;
+                }
+                out.remove(edge);
+                inEdges[w].remove(edge);
+                break;
+            }
+        }
+        int id = addEdge(u, w, weight, firstChild, secondChild);
+        outEdges[u].add(id);
+        inEdges[w].add(id);
+    }
+
+    /**
+     * Append an edge to the edge arrays.
+     * @return the id of the edge.
+     */
+    private int addEdge(int from, int to, long weight, int firstChild, int secondChild) {
+        if (nbEdges == edgeFrom.length) {
+            int capacity = 2 * nbEdges;
+            edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+            edgeTo = Arrays.copyOf(edgeTo, capacity);
+            edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+            edgeFirstChild = Arrays.copyOf(edgeFirstChild, capacity);
+            edgeSecondChild = Arrays.copyOf(edgeSecondChild, capacity);
+        }
+        edgeFrom[nbEdges] = from;
+        edgeTo[nbEdges] = to;
+        edgeWeight[nbEdges] = weight;
+        edgeFirstChild[nbEdges] = firstChild;
+        edgeSecondChild[nbEdges] = secondChild;
+        return nbEdges++;
+    }
+
+    /**
+     * Growable list of edge ids.
+     */
+    private static class EdgeList {
+        /** Edge ids, only the first size are valid. */
+        private int[] items = new int[4];
+        /** Number of edge ids. */
+        private int size;
+
+        /**
+         * @param edge edge id to append.
+         */
+        private void add(int edge) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, 2 * size);
+            }
+            items[size++] = edge;
+        }
+
+        /**
+         * Remove an edge id, the order of the list is not kept.
+         * @param edge edge id to remove.
+         */
+        private void remove(int edge) {
+            for (int i = 0; i < size; i++) {
+                if (items[i] == edge) {
+                    items[i] = items[--size];
+                    return;
+                }
+            }
+        }
+    }
+}
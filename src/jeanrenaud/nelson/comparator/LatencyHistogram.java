@@ -0,0 +1,143 @@
+package jeanrenaud.nelson.comparator;
+
+/**
+ * Histogram of latencies in nanoseconds with a bounded relative error, in the manner of HdrHistogram.
+ * Values below 2^{@value #SUB_BUCKET_BITS} have their own bucket, larger values are grouped in
+ * 2^({@value #SUB_BUCKET_BITS} - 1) linear buckets per power of two, so a reported percentile is at most 1/128
+ * above the recorded value. Recording is O(1) and the memory does not depend on the number of values.
+ * @author Nelson Jeanrenaud
+ * @see ShortestPathAlgorithmComparator
+ */
+public class LatencyHistogram {
+    /** Number of bits of precision kept for each value. */
+    private static final int SUB_BUCKET_BITS = 8;
+    /** Number of buckets of each power of two above 2^SUB_BUCKET_BITS. */
+    private static final int HALF_SUB_BUCKET_COUNT = 1 << (SUB_BUCKET_BITS - 1);
+
+    /** Number of values of each bucket. */
+    private final long[] counts = new long[bucketIndex(Long.MAX_VALUE) + 1];
+    /** Number of values recorded. */
+    private long count;
+    /** Sum of the values recorded. */
+    private long sum;
+    /** Smallest and largest values recorded. */
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    /**
+     * Record a value.
+     * @param nanos the value, in nanoseconds.
+     * @throws IllegalArgumentException if the value is negative.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("latency cannot be negative");
+        }
+        counts[bucketIndex(nanos)]++;
+        count++;
+        sum += nanos;
+        min = Math.min(min, nanos);
+        max = Math.max(max, nanos);
+    }
+
+    /**
+     * Get the number of values recorded.
+     * @return the number of values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the sum of the values recorded.
+     * @return the sum of the values, in nanoseconds.
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Get the smallest value recorded.
+     * @return the smallest value, in nanoseconds.
+     * @throws IllegalStateException if no value has been recorded.
+     */
+    public long getMin() {
+        checkNotEmpty();
+        return min;
+    }
+
+    /**
+     * Get the largest value recorded.
+     * @return the largest value, in nanoseconds.
+     * @throws IllegalStateException if no value has been recorded.
+     */
+    public long getMax() {
+        checkNotEmpty();
+        return max;
+    }
+
+    /**
+     * Get the mean of the values recorded.
+     * @return the mean, in nanoseconds.
+     * @throws IllegalStateException if no value has been recorded.
+     */
+    public double getMean() {
+        checkNotEmpty();
+        return (double) sum / count;
+    }
+
+    /**
+     * Get a percentile of the values recorded: the smallest value such that at least the given percentage of the
+     * values are lower or equal to it, up to the precision of the buckets.
+     * @param percentile the percentile, between 0 and 100.
+     * @return the value of the percentile, in nanoseconds.
+     * @throws IllegalArgumentException if the percentile is not between 0 and 100.
+     * @throws IllegalStateException if no value has been recorded.
+     */
+    public long getPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        checkNotEmpty();
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long cumulated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulated += counts[i];
+            if (cumulated >= rank) {
+                return Math.max(min, Math.min(max, highestValue(i)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @param value a value.
+     * @return the index of the bucket of the value.
+     */
+    private static int bucketIndex(long value) {
+        int shift = Math.max(0, (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1));
+        return shift * HALF_SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * @param index index of a bucket.
+     * @return the largest value of the bucket.
+     */
+    private static long highestValue(int index) {
+        if (index < 2 * HALF_SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / HALF_SUB_BUCKET_COUNT - 1;
+        long subBucket = index - shift * HALF_SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * @throws IllegalStateException if no value has been recorded.
+     */
+    private void checkNotEmpty() {
+        if (count == 0) {
+            throw new IllegalStateException("No latency recorded");
+        }
+    }
+}
@@ -6,24 +6,50 @@ import graph.core.impl.SimpleWeightedEdge;
 import graph.core.impl.SimpleWeightedEdgeFactory;
 import graph.data.CartesianVertexData;
 import graph.reader.CartesianGraphReader;
+import graph.reader.CartesianGraphSnapshotReader;
+import graph.reader.CartesianGraphSnapshotWriter;
+import jeanrenaud.nelson.alt.ALT;
+import jeanrenaud.nelson.alt.LandmarkSelection;
+import jeanrenaud.nelson.alt.Landmarks;
+import jeanrenaud.nelson.arcflags.ArcFlags;
+import jeanrenaud.nelson.arcflags.ArcFlagsDijkstra;
+import jeanrenaud.nelson.astar.AStar;
+import jeanrenaud.nelson.astar.BidirectionalAStar;
+import jeanrenaud.nelson.ch.ContractionHierarchy;
+import jeanrenaud.nelson.ch.ContractionHierarchyQuery;
+import jeanrenaud.nelson.crp.Overlay;
+import jeanrenaud.nelson.crp.OverlayQuery;
 import jeanrenaud.nelson.dijkstra.BidirectionalDijkstra;
+import jeanrenaud.nelson.dijkstra.ConcurrentBidirectionalDijkstra;
+import jeanrenaud.nelson.dijkstra.DialQueue;
 import jeanrenaud.nelson.dijkstra.Dijkstra;
 import jeanrenaud.nelson.dijkstra.Path;
+import jeanrenaud.nelson.dijkstra.RadixHeap;
 import jeanrenaud.nelson.dijkstra.ShortestPathAlgorithm;
 import jeanrenaud.nelson.graph.EuclideanDistance;
+import jeanrenaud.nelson.graph.KdPartition;
 import jeanrenaud.nelson.graph.Node;
 import jeanrenaud.nelson.graph.NodeFactory;
+import jeanrenaud.nelson.hl.HubLabelQuery;
+import jeanrenaud.nelson.hl.HubLabels;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Compare the performance of the different shortest path algorithms.
@@ -36,6 +62,10 @@ public class ShortestPathAlgorithmComparator {
     private final ShortestPathAlgorithm[] algorithms;
     /** Results of the tests */
     private final List<TestResult> results;
+    /** Latencies of each algorithm */
+    private final LatencyHistogram[] latencies;
+    /** Total number of iterations of each algorithm */
+    private final long[] iterations;
 
     /**
      * Creates a new instance of ShortestPathAlgorithmComparator.
@@ -56,6 +86,11 @@ public class ShortestPathAlgorithmComparator {
         }
 
         results = new java.util.ArrayList<>();
+        latencies = new LatencyHistogram[algorithms.length];
+        for (int i = 0; i < algorithms.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        iterations = new long[algorithms.length];
     }
 
     /**
@@ -99,13 +134,18 @@ public class ShortestPathAlgorithmComparator {
         Node target = getGraph().getVertices().get(idTarget);
         TestResult.AlgorithmResult[] results = new TestResult.AlgorithmResult[algorithms.length];
         for (int i = 0; i < algorithms.length; i++) {
-            Instant startTime = Instant.now();
+            long startTime = System.nanoTime();
             algorithms[i].run(source, target);
-            Instant endTime = Instant.now();
+            long endTime = System.nanoTime();
             Path path = algorithms[i].getShortestPath();
-            results[i] = new TestResult.AlgorithmResult(algorithms[i], Duration.between(startTime, endTime),
+            results[i] = new TestResult.AlgorithmResult(algorithms[i], Duration.ofNanos(endTime - startTime),
                     algorithms[i].getIteration() , path.totalWeight(), path.getNumberOfNodes());
         }
+        // Only complete tests are recorded, a missing path interrupts the loop above
+        for (int i = 0; i < algorithms.length; i++) {
+            latencies[i].record(results[i].getTime().toNanos());
+            iterations[i] += results[i].getNbIterations();
+        }
         return new TestResult(source, target, results);
     }
 
@@ -130,42 +170,205 @@ public class ShortestPathAlgorithmComparator {
         return sb.toString();
     }
 
+    /**
+     * Get the latency summary of each algorithm in csv format: percentiles and maximum of the execution time in
+     * microseconds, and number of iterations per second of execution.
+     * @param separator the separator to use.
+     * @param lineSeparator the line separator to use.
+     * @return the summary in csv format, only the header if no test has been run.
+     */
+    public String toLatencySummaryCsv(char separator, char lineSeparator) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("algorithm").append(separator).append("runs").append(separator)
+                .append("p50 (us)").append(separator).append("p90 (us)").append(separator)
+                .append("p99 (us)").append(separator).append("p99.9 (us)").append(separator)
+                .append("max (us)").append(separator).append("mean (us)").append(separator)
+                .append("iterations per second").append(lineSeparator);
+        for (int i = 0; i < algorithms.length; i++) {
+            LatencyHistogram latency = latencies[i];
+            if (latency.getCount() == 0) {
+                continue;
+            }
+            sb.append(algorithms[i].getName()).append(separator).append(latency.getCount()).append(separator)
+                    .append(toMicros(latency.getPercentile(50))).append(separator)
+                    .append(toMicros(latency.getPercentile(90))).append(separator)
+                    .append(toMicros(latency.getPercentile(99))).append(separator)
+                    .append(toMicros(latency.getPercentile(99.9))).append(separator)
+                    .append(toMicros(latency.getMax())).append(separator)
+                    .append(String.format(Locale.ROOT, "%.3f", latency.getMean() / 1e3)).append(separator)
+                    .append(String.format(Locale.ROOT, "%.0f", iterations[i] * 1e9 / Math.max(1, latency.getSum())))
+                    .append(lineSeparator);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param nanos a duration in nanoseconds.
+     * @return the duration in microseconds with three decimals.
+     */
+    private static String toMicros(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e3);
+    }
+
     private static final String DATA_FOLDER = "data/";
     private static final String OUTPUT_FOLDER = "output/";
+    private static final String GRAPH_NAME = "R10000_1";
+    /** Number of landmarks used by ALT. */
+    private static final int NB_LANDMARKS = 16;
+    /** Number of splits of the partition used by the arc flags, 2^depth regions. */
+    private static final int ARC_FLAGS_DEPTH = 6;
+    /** Depth in the partition of each level of the overlay, from the finest. */
+    private static final int[] OVERLAY_DEPTHS = {7, 4, 2};
+
+    /** Contraction hierarchy of the last graph, shared by the algorithms using it. */
+    private static ContractionHierarchy hierarchy;
+
+    /** Algorithms that can be selected on the command line, by name. */
+    private static final Map<String, Function<Digraph<Node, SimpleWeightedEdge<Node>>, ShortestPathAlgorithm>> ALGORITHMS
+            = new LinkedHashMap<>();
+    static {
+        ALGORITHMS.put("dijkstra", Dijkstra::new);
+        ALGORITHMS.put("dijkstra-radix", graph -> new Dijkstra(graph, false, RadixHeap::new));
+        ALGORITHMS.put("dijkstra-dial", graph -> new Dijkstra(graph, false, DialQueue::new));
+        ALGORITHMS.put("bidirectional", BidirectionalDijkstra::new);
+        ALGORITHMS.put("concurrent-bidirectional", ConcurrentBidirectionalDijkstra::new);
+        ALGORITHMS.put("astar", AStar::new);
+        ALGORITHMS.put("bidirectional-astar", BidirectionalAStar::new);
+        ALGORITHMS.put("ch", graph -> new ContractionHierarchyQuery(getHierarchy(graph)));
+        ALGORITHMS.put("alt", graph -> new ALT(graph, loadLandmarks(graph)));
+        ALGORITHMS.put("hub-labels", graph -> {
+            ContractionHierarchy hierarchy = getHierarchy(graph);
+            return new HubLabelQuery(graph, HubLabels.build(hierarchy), new ContractionHierarchyQuery(hierarchy));
+        });
+        ALGORITHMS.put("arc-flags",
+                graph -> new ArcFlagsDijkstra(ArcFlags.preprocess(graph, new KdPartition(graph, ARC_FLAGS_DEPTH))));
+        ALGORITHMS.put("overlay",
+                graph -> new OverlayQuery(new Overlay(graph, new KdPartition(graph, OVERLAY_DEPTHS[0]), OVERLAY_DEPTHS)));
+    }
 
     /**
-     * Run tests to compare the Dijkstra algorithm with the Bidirectional Dijkstra algorithm.
-     * @param args not used
+     * Get the names of the algorithms that can be created by {@link #createAlgorithm(String, Digraph)}.
+     * @return the names of the algorithms.
+     */
+    public static Set<String> getAlgorithmNames() {
+        return Collections.unmodifiableSet(ALGORITHMS.keySet());
+    }
+
+    /**
+     * Create an algorithm by name, running its preprocessing if it has one.
+     * @param name the name of the algorithm, one of {@link #getAlgorithmNames()}.
+     * @param graph the graph used by the algorithm.
+     * @return the algorithm.
+     * @throws IllegalArgumentException if the name is unknown.
+     */
+    public static ShortestPathAlgorithm createAlgorithm(String name, Digraph<Node, SimpleWeightedEdge<Node>> graph) {
+        if (!ALGORITHMS.containsKey(name)) {
+            throw new IllegalArgumentException("Unknown algorithm " + name + ", expected one of " + ALGORITHMS.keySet());
+        }
+        return ALGORITHMS.get(name).apply(graph);
+    }
+
+    /**
+     * Get the contraction hierarchy of a graph, preprocessed once for the algorithms using it. Only the hierarchy of
+     * the last graph is kept.
+     * @param graph the graph.
+     * @return the contraction hierarchy of the graph.
+     */
+    private static synchronized ContractionHierarchy getHierarchy(Digraph<Node, SimpleWeightedEdge<Node>> graph) {
+        if (hierarchy == null || hierarchy.getGraph() != graph) {
+            hierarchy = ContractionHierarchy.preprocess(graph);
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Load the landmarks of the graph saved by a previous run, or select them and save them if the output folder
+     * exists. The file is named after the fingerprint of the graph, which is also checked when it is loaded: landmarks
+     * of another graph are never reused.
+     * @param graph the graph.
+     * @return the landmarks of the graph.
+     */
+    private static Landmarks loadLandmarks(Digraph<Node, SimpleWeightedEdge<Node>> graph) {
+        long fingerprint = graph.getCompactAdjacency(SimpleWeightedEdge.WEIGHER).fingerprint();
+        File file = new File(OUTPUT_FOLDER + "landmarks-" + graph.getNVertices() + "-"
+                + Long.toHexString(fingerprint) + "-" + NB_LANDMARKS + ".bin");
+        try {
+            if (file.exists()) {
+                try {
+                    Landmarks landmarks = Landmarks.load(file.getPath());
+                    if (landmarks.isComputedOn(graph) && landmarks.getCount() == NB_LANDMARKS) {
+                        return landmarks;
+                    }
+                } catch (IOException | IllegalArgumentException e) {
+                    // Truncated or not a landmarks file of this version, it is replaced below
+                }
+            }
+            Landmarks landmarks = Landmarks.select(graph, NB_LANDMARKS, LandmarkSelection.AVOID, 20220404);
+            if (file.getParentFile().isDirectory()) {
+                landmarks.save(file.getPath());
+            }
+            return landmarks;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Run tests to compare the shortest path algorithms.
+     * @param args names of the algorithms to compare, see {@link #getAlgorithmNames()}, all of them if empty.
+     *             Dijkstra is always run first since it detects the missing paths.
      * @throws IOException if an error occurs while reading or writing files.
+     * @throws IllegalArgumentException if an algorithm name is unknown.
      */
     public static void main(String[] args) throws IOException {
         VertexFactory<Node, CartesianVertexData> nodeFactory = new NodeFactory();
-        var graph = new CartesianGraphReader<>(
-                nodeFactory                                  /* TODO: Fournir une fabrique de sommets (il
-                                                            s'agit d'une interface fonctionnelle) */,
-                new SimpleWeightedEdgeFactory<>(new EuclideanDistance<>()    /* TODO: Fournir une fonction de pondération
-                                                            renvoyant la distance euclidienne (arrondie
-                                                            à l'entier le plus proche) entre l'extrémité
-                                                            initiale et l'extrémité finale de l'arête */),
-                DATA_FOLDER + "R10000_1.txt"                       /* TODO: Chemin des fichiers */
-        ).graph();
+        // The text file is parsed once, later runs map the binary snapshot
+        File snapshot = new File(OUTPUT_FOLDER + GRAPH_NAME + ".graph");
+        Digraph<Node, SimpleWeightedEdge<Node>> graph;
+        if (snapshot.exists()) {
+            graph = new CartesianGraphSnapshotReader<>(nodeFactory,
+                    new SimpleWeightedEdgeFactory<>(new EuclideanDistance<>()), snapshot.getPath()).graph();
+        } else {
+            graph = new CartesianGraphReader<>(
+                    nodeFactory                                  /* TODO: Fournir une fabrique de sommets (il
+                                                                s'agit d'une interface fonctionnelle) */,
+                    new SimpleWeightedEdgeFactory<>(new EuclideanDistance<>()    /* TODO: Fournir une fonction de pondération
+                                                                renvoyant la distance euclidienne (arrondie
+                                                                à l'entier le plus proche) entre l'extrémité
+                                                                initiale et l'extrémité finale de l'arête */),
+                    new EuclideanDistance<>()                    /* Graphe compact (CSR) pondéré par la même
+                                                                fonction, sans objets arête */,
+                    DATA_FOLDER + GRAPH_NAME + ".txt"                       /* TODO: Chemin des fichiers */
+            ).graph();
+
+            CartesianGraphSnapshotWriter.write(graph, SimpleWeightedEdge.WEIGHER, Node::getX, Node::getY,
+                    snapshot.getPath());
+        }
 
+        List<String> names = new ArrayList<>(args.length == 0 ? ALGORITHMS.keySet() : List.of(args));
+        names.remove("dijkstra");
+        names.add(0, "dijkstra");
+        List<ShortestPathAlgorithm> algorithms = new ArrayList<>();
+        for (String name : names) {
+            algorithms.add(createAlgorithm(name, graph));
+        }
         ShortestPathAlgorithmComparator comparator = new ShortestPathAlgorithmComparator(
-                new ShortestPathAlgorithm[]{
-                        new Dijkstra(graph),
-                        new BidirectionalDijkstra(graph)
-                });
+                algorithms.toArray(new ShortestPathAlgorithm[0]));
 
 
         comparator.analyse(1000);
         System.out.println(comparator.toCsv(';', '\n', true));
+        System.out.println(comparator.toLatencySummaryCsv(';', '\n'));
 
         try {
             SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH-mm-ss") ;
-            File file = new File(OUTPUT_FOLDER + "result-" + dateFormat.format(new Date()) + ".csv");
-            FileWriter fw = new FileWriter(file);
+            String date = dateFormat.format(new Date());
+            FileWriter fw = new FileWriter(new File(OUTPUT_FOLDER + "result-" + date + ".csv"));
             fw.write(comparator.toCsv(';', '\n', true));
             fw.close();
+            fw = new FileWriter(new File(OUTPUT_FOLDER + "latency-" + date + ".csv"));
+            fw.write(comparator.toLatencySummaryCsv(';', '\n'));
+            fw.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
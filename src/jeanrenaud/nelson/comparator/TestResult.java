@@ -4,6 +4,7 @@ import jeanrenaud.nelson.dijkstra.ShortestPathAlgorithm;
 import jeanrenaud.nelson.graph.Node;
 
 import java.time.Duration;
+import java.util.Locale;
 import java.util.Objects;
 
 /**
@@ -198,10 +199,10 @@ public class TestResult {
         /**
          * Return the CSV representation of the test result.
          * @param separator column separator used
-         * @return CSV representation
+         * @return CSV representation, the time is in milliseconds with a microsecond precision
          */
         public String toCsv(char separator) {
-            return Long.toString(time.toMillis()) + separator + getNbIterations()
+            return String.format(Locale.ROOT, "%.3f", time.toNanos() / 1e6) + separator + getNbIterations()
                     + separator + getPathWeight() + separator + getPathLength();
         }
     }
@@ -0,0 +1,357 @@
+package jeanrenaud.nelson.crp;
+
+import graph.core.impl.CompactAdjacency;
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.dijkstra.SearchWorkspace;
+import jeanrenaud.nelson.graph.KdPartition;
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-level overlay of a graph for customizable route planning.
+ * The nodes are partitioned into nested cells, level 1 being the finest. A node is a boundary node of a level if one
+ * of its edges leads to or comes from another cell of that level. The partition and the boundary nodes only depend on
+ * the structure of the graph. The weights are applied by a customization: for every cell, the distances inside the
+ * cell between its boundary nodes are computed, a clique of the cell. The cells of level 1 are searched on the graph,
+ * the cells of a higher level on the cliques and cut edges of the level below, so a customization is cheap and its
+ * cells are computed in parallel. A customization is immutable, a new one replaces the current one atomically.
+ * @author Nelson Jeanrenaud
+ * @see OverlayQuery
+ */
+public class Overlay {
+    /** Graph of the overlay. */
+    private final Digraph<Node, SimpleWeightedEdge<Node>> graph;
+    /** Successors of the graph, the edge indices of the weights of a customization. */
+    private final CompactAdjacency adjacency;
+    /** Partition of the nodes at the finest level. */
+    private final KdPartition partition;
+    /** Depth in the partition of each level, level l is at index l - 1. */
+    private final int[] depths;
+    /** First boundary node of each cell of each level followed by the number of boundary nodes. */
+    private final int[][] cellOffsets;
+    /** Boundary nodes of each level grouped by cell. */
+    private final int[][] boundaryNodes;
+    /** Index of each node in the boundary nodes of its cell at each level, -1 if it is not a boundary node. */
+    private final int[][] boundaryIndex;
+    /** First entry of the clique of each cell of each level, the clique is a row-major square matrix. */
+    private final int[][] cliqueOffsets;
+    /** Highest level at which each node is a boundary node, 0 if it is not one. */
+    private final int[] topLevel;
+    /** Number of threads of a customization. */
+    private final int nbThreads;
+    /** Current weights. */
+    private volatile Metric metric;
+
+    /**
+     * Build the overlay of a graph and customize it with the weights of the graph, using one thread per available
+     * processor.
+     * @param graph the graph.
+     * @param partition partition of the nodes of the graph.
+     * @param depths depth in the partition of each level from the finest, strictly decreasing and positive.
+     * @throws NullPointerException if an argument is null.
+     * @throws IllegalArgumentException if the partition does not have the nodes of the graph or the depths are not
+     * valid.
+     */
+    public Overlay(Digraph<Node, SimpleWeightedEdge<Node>> graph, KdPartition partition, int... depths) {
+        this(graph, partition, Runtime.getRuntime().availableProcessors(), depths);
+    }
+
+    /**
+     * Build the overlay of a graph and customize it with the weights of the graph.
+     * @param graph the graph.
+     * @param partition partition of the nodes of the graph.
+     * @param nbThreads number of threads of a customization.
+     * @param depths depth in the partition of each level from the finest, strictly decreasing and positive.
+     * @throws NullPointerException if an argument is null.
+     * @throws IllegalArgumentException if the partition does not have the nodes of the graph, the depths are not
+     * valid or the number of threads is not positive.
+     */
+    public Overlay(Digraph<Node, SimpleWeightedEdge<Node>> graph, KdPartition partition, int nbThreads,
+                   int... depths) {
+        Objects.requireNonNull(graph, "The graph cannot be null.");
+        Objects.requireNonNull(partition, "The partition cannot be null.");
+        Objects.requireNonNull(depths, "The depths cannot be null.");
+        if (partition.size() != graph.getNVertices()) {
+            throw new IllegalArgumentException("The partition does not have the nodes of the graph");
+        }
+        if (depths.length == 0 || depths[0] > partition.getDepth() || depths[depths.length - 1] <= 0) {
+            throw new IllegalArgumentException("The depths must be between 1 and the depth of the partition");
+        }
+        for (int level = 1; level < depths.length; level++) {
+            if (depths[level] >= depths[level - 1]) {
+                throw new IllegalArgumentException("The depths must be strictly decreasing");
+            }
+        }
+        if (nbThreads <= 0) {
+            throw new IllegalArgumentException("The number of threads must be positive");
+        }
+        this.graph = graph;
+        this.adjacency = graph.getCompactAdjacency(SimpleWeightedEdge.WEIGHER);
+        this.partition = partition;
+        this.depths = depths.clone();
+        this.nbThreads = nbThreads;
+
+        int nbVertices = graph.getNVertices();
+        int nbLevels = depths.length;
+        CompactAdjacency predecessors = graph.getPredecessorAdjacency(SimpleWeightedEdge.WEIGHER);
+        this.cellOffsets = new int[nbLevels + 1][];
+        this.boundaryNodes = new int[nbLevels + 1][];
+        this.boundaryIndex = new int[nbLevels + 1][];
+        this.cliqueOffsets = new int[nbLevels + 1][];
+        this.topLevel = new int[nbVertices];
+        for (int level = 1; level <= nbLevels; level++) {
+            int nbCells = 1 << this.depths[level - 1];
+            int[] offsets = new int[nbCells + 1];
+            int[] index = new int[nbVertices];
+            for (int v = 0; v < nbVertices; v++) {
+                int cell = getCell(level, v);
+                if (isCut(adjacency, level, v, cell) || isCut(predecessors, level, v, cell)) {
+                    index[v] = offsets[cell + 1]++;
+                    topLevel[v] = level;
+                } else {
+                    index[v] = -1;
+                }
+            }
+            int[] cliques = new int[nbCells + 1];
+            for (int cell = 0; cell < nbCells; cell++) {
+                int size = offsets[cell + 1];
+                cliques[cell + 1] = Math.addExact(cliques[cell], Math.multiplyExact(size, size));
+                offsets[cell + 1] += offsets[cell];
+            }
+            int[] nodes = new int[offsets[nbCells]];
+            for (int v = 0; v < nbVertices; v++) {
+                if (index[v] >= 0) {
+                    nodes[offsets[getCell(level, v)] + index[v]] = v;
+                }
+            }
+            cellOffsets[level] = offsets;
+            boundaryNodes[level] = nodes;
+            boundaryIndex[level] = index;
+            cliqueOffsets[level] = cliques;
+        }
+        long[] weights = new long[adjacency.getNEdges()];
+        for (int edge = 0; edge < weights.length; edge++) {
+            weights[edge] = adjacency.weight(edge);
+        }
+        this.metric = computeMetric(weights);
+    }
+
+    /**
+     * @return true if an edge of the node leads to another cell of the level.
+     */
+    private boolean isCut(CompactAdjacency edges, int level, int v, int cell) {
+        for (int edge = edges.begin(v); edge < edges.end(v); edge++) {
+            if (getCell(level, edges.target(edge)) != cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Apply new weights to the overlay: the cliques of every cell are recomputed and replace the current ones once
+     * they are all computed. Queries started before keep the previous weights.
+     * @param weights weight of each edge, indexed like the compact adjacency of the graph. The array is copied.
+     * @throws NullPointerException if the weights are null.
+     * @throws IllegalArgumentException if the number of weights is not the number of edges or a weight is negative.
+     */
+    public void customize(long[] weights) {
+        Objects.requireNonNull(weights, "The weights cannot be null.");
+        if (weights.length != adjacency.getNEdges()) {
+            throw new IllegalArgumentException("There must be one weight per edge");
+        }
+        for (long weight : weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("The weights cannot be negative");
+            }
+        }
+        metric = computeMetric(weights.clone());
+    }
+
+    /**
+     * Compute the cliques of every cell, level by level, the cells of a level in parallel.
+     * @param weights weight of each edge, owned by the returned metric.
+     * @return the metric.
+     */
+    private Metric computeMetric(long[] weights) {
+        long[][] cliques = new long[depths.length + 1][];
+        Metric customized = new Metric(weights, cliques);
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads, runnable -> {
+            Thread thread = new Thread(runnable, "overlay-customization");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            OverlaySearch[] searches = new OverlaySearch[nbThreads];
+            for (int level = 1; level <= depths.length; level++) {
+                int currentLevel = level;
+                int nbCells = 1 << depths[level - 1];
+                cliques[level] = new long[cliqueOffsets[level][nbCells]];
+                AtomicInteger cursor = new AtomicInteger();
+                List<Future<?>> tasks = new ArrayList<>(nbThreads);
+                for (int thread = 0; thread < nbThreads; thread++) {
+                    int currentThread = thread;
+                    tasks.add(executor.submit(() -> {
+                        if (searches[currentThread] == null) {
+                            searches[currentThread] = new OverlaySearch(this);
+                        }
+                        OverlaySearch search = searches[currentThread];
+                        int cell;
+                        while ((cell = cursor.getAndIncrement()) < nbCells) {
+                            customizeCell(search, customized, currentLevel, cell);
+                        }
+                    }));
+                }
+                // Future.get orders the cliques of a level before the searches of the next level
+                await(tasks);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return customized;
+    }
+
+    /**
+     * Compute the clique of a cell with one search from each of its boundary nodes, restricted to the cell.
+     */
+    private void customizeCell(OverlaySearch search, Metric customized, int level, int cell) {
+        int begin = cellOffsets[level][cell];
+        int size = cellOffsets[level][cell + 1] - begin;
+        long[] clique = customized.cliques[level];
+        int base = cliqueOffsets[level][cell];
+        for (int i = 0; i < size; i++) {
+            search.run(customized, boundaryNodes[level][begin + i], -1, node -> level - 1, level, cell);
+            for (int j = 0; j < size; j++) {
+                clique[base + i * size + j] = search.getDistance(boundaryNodes[level][begin + j]);
+            }
+        }
+    }
+
+    private static void await(List<Future<?>> tasks) {
+        try {
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            tasks.forEach(task -> task.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while customizing the overlay", e);
+        } catch (ExecutionException e) {
+            tasks.forEach(task -> task.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Get the graph of the overlay.
+     * @return the graph.
+     */
+    public Digraph<Node, SimpleWeightedEdge<Node>> getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the number of levels above the graph.
+     */
+    public int getNbLevels() {
+        return depths.length;
+    }
+
+    /**
+     * @param level a level, from 1 to the number of levels.
+     * @return the number of cells of the level.
+     */
+    public int getNbCells(int level) {
+        return 1 << depths[level - 1];
+    }
+
+    /**
+     * @param level a level, from 1 to the number of levels.
+     * @return the number of boundary nodes of the level.
+     */
+    public int getNbBoundaryNodes(int level) {
+        return boundaryNodes[level].length;
+    }
+
+    /**
+     * @return the current weights, a snapshot that is never modified.
+     */
+    public Metric getMetric() {
+        return metric;
+    }
+
+    /**
+     * @param level a level, from 1 to the number of levels.
+     * @param id id of a node.
+     * @return the cell of the node at the level.
+     */
+    int getCell(int level, int id) {
+        return partition.getRegion(id) >>> (partition.getDepth() - depths[level - 1]);
+    }
+
+    /**
+     * @return the highest level at which a node is a boundary node, 0 if it is not one.
+     */
+    int getTopLevel(int id) {
+        return topLevel[id];
+    }
+
+    CompactAdjacency getAdjacency() {
+        return adjacency;
+    }
+
+    int[] getCellOffsets(int level) {
+        return cellOffsets[level];
+    }
+
+    int[] getBoundaryNodes(int level) {
+        return boundaryNodes[level];
+    }
+
+    int getBoundaryIndex(int level, int id) {
+        return boundaryIndex[level][id];
+    }
+
+    int getCliqueOffset(int level, int cell) {
+        return cliqueOffsets[level][cell];
+    }
+
+    /**
+     * Weights of the edges and cliques of the cells computed by a customization, never modified once published.
+     */
+    public static final class Metric {
+        /** Weight of each edge of the graph. */
+        private final long[] weights;
+        /** Cliques of each level, {@link SearchWorkspace#UNREACHED} between boundary nodes not connected in the cell. */
+        private final long[][] cliques;
+
+        private Metric(long[] weights, long[][] cliques) {
+            this.weights = weights;
+            this.cliques = cliques;
+        }
+
+        /**
+         * @param edge index of an edge in the compact adjacency of the graph.
+         * @return the weight of the edge.
+         */
+        public long getWeight(int edge) {
+            return weights[edge];
+        }
+
+        long[] getClique(int level) {
+            return cliques[level];
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package jeanrenaud.nelson.crp;
+
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.dijkstra.Path;
+import jeanrenaud.nelson.dijkstra.SearchWorkspace;
+import jeanrenaud.nelson.dijkstra.ShortestPathAlgorithm;
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Shortest path query on a multi-level overlay.
+ * A node is expanded at the highest level at which its cell contains neither the source nor the target, or the
+ * highest level at which it is a boundary node if it is lower: the search crosses the cells far from the source and
+ * the target through their cliques. The cliques of the shortest path found are unpacked into edges of the graph by a
+ * search restricted to their cell. A query uses the weights of the overlay when it starts until it ends.
+ * @author Nelson Jeanrenaud
+ * @see Overlay
+ */
+public class OverlayQuery implements ShortestPathAlgorithm {
+    /** Overlay on which the queries are run. */
+    private final Overlay overlay;
+    /** Search of the queries. */
+    private final OverlaySearch search;
+    /** Search unpacking the cliques, restricted to their cell. */
+    private final OverlaySearch unpackSearch;
+    /** Cell of the source and target at each level. */
+    private final int[] sourceCells;
+    private final int[] targetCells;
+    /** Weights of the last query. */
+    private Overlay.Metric metric;
+    /** Source and target of the last query. */
+    private Node source;
+    private Node target;
+    /** True if the target of the last query can't be reached without searching. */
+    private boolean isUnreachable;
+
+    /**
+     * Constructor.
+     * @param overlay the overlay of the graph.
+     * @throws NullPointerException if the overlay is null.
+     */
+    public OverlayQuery(Overlay overlay) {
+        Objects.requireNonNull(overlay, "The overlay cannot be null.");
+        this.overlay = overlay;
+        this.search = new OverlaySearch(overlay);
+        this.unpackSearch = new OverlaySearch(overlay);
+        this.sourceCells = new int[overlay.getNbLevels() + 1];
+        this.targetCells = new int[overlay.getNbLevels() + 1];
+    }
+
+    @Override
+    public Digraph<Node, SimpleWeightedEdge<Node>> getGraph() {
+        return overlay.getGraph();
+    }
+
+    /**
+     * Calculate the shortest path from the source to the target.
+     * @param source the source node.
+     * @param target the target node.
+     * @throws NullPointerException if the source or target node is null.
+     * @throws IllegalArgumentException if the source or target node is not in the graph.
+     */
+    @Override
+    public void run(Node source, Node target) {
+        Objects.requireNonNull(source, "The source node cannot be null.");
+        Objects.requireNonNull(target, "The target node cannot be null.");
+        if (!isInGraph(source) || !isInGraph(target)) {
+            throw new IllegalArgumentException("Source or target node is not in the graph");
+        }
+        this.source = source;
+        this.target = target;
+        this.metric = overlay.getMetric();
+        for (int level = 1; level <= overlay.getNbLevels(); level++) {
+            sourceCells[level] = overlay.getCell(level, source.id());
+            targetCells[level] = overlay.getCell(level, target.id());
+        }
+        // A customization may disconnect nodes of the same component, but never connect different components
+        isUnreachable = !getGraph().getStronglyConnectedComponents().mayReach(source.id(), target.id());
+        if (!isUnreachable) {
+            search.run(metric, source.id(), target.id(), this::getLevel, 0, 0);
+        }
+    }
+
+    /**
+     * @return the level at which a node is expanded.
+     */
+    private int getLevel(int id) {
+        for (int level = Math.min(overlay.getTopLevel(id), overlay.getNbLevels()); level > 0; level--) {
+            int cell = overlay.getCell(level, id);
+            if (cell != sourceCells[level] && cell != targetCells[level]) {
+                return level;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Get the shortest distance found by the last query.
+     * @return the distance, {@link SearchWorkspace#UNREACHED} if the target can't be reached.
+     * @throws IllegalStateException if no query has been run.
+     */
+    public long getDistance() {
+        if (source == null) {
+            throw new IllegalStateException("The algorithm has not been initialized.");
+        }
+        return isUnreachable ? SearchWorkspace.UNREACHED : search.getDistance(target.id());
+    }
+
+    /**
+     * Get the shortest path found by the last query.
+     * @return the shortest path, or null if the target can't be reached.
+     * @throws IllegalStateException if the algorithm has not been initialized.
+     */
+    @Override
+    public Path getShortestPath() {
+        if (getDistance() == SearchWorkspace.UNREACHED) {
+            return null;
+        }
+        // Edges of the overlay, collected from the target back to the source
+        int[] nodes = new int[16];
+        int size = 0;
+        for (int node = target.id(); search.getParent(node) >= 0; node = search.getParent(node)) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * size);
+            }
+            nodes[size++] = node;
+        }
+        Path.Builder path = new Path.Builder(getGraph().getVertices());
+        for (int i = size - 1; i >= 0; i--) {
+            int to = nodes[i];
+            int from = search.getParent(to);
+            int level = search.getParentLevel(to);
+            if (level == 0) {
+                path.append(from, to, metric.getWeight(search.getParentEdge(to)));
+            } else {
+                unpack(from, to, level, path);
+            }
+        }
+        return path.build();
+    }
+
+    /**
+     * Append the edges of the graph of a clique edge, found by a search restricted to the cell of the clique.
+     */
+    private void unpack(int from, int to, int level, Path.Builder path) {
+        unpackSearch.run(metric, from, to, id -> 0, level, overlay.getCell(level, from));
+        int[] nodes = new int[16];
+        int size = 0;
+        for (int node = to; node != from; node = unpackSearch.getParent(node)) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * size);
+            }
+            nodes[size++] = node;
+        }
+        for (int i = size - 1; i >= 0; i--) {
+            path.append(unpackSearch.getParent(nodes[i]), nodes[i],
+                    metric.getWeight(unpackSearch.getParentEdge(nodes[i])));
+        }
+    }
+
+    @Override
+    public long getIteration() {
+        return isUnreachable ? 0 : search.getIteration();
+    }
+
+    @Override
+    public String getName() {
+        return "Multi-Level Overlay";
+    }
+
+    /**
+     * Check that a node belongs to the graph by looking it up by id.
+     * @param node Node to check.
+     * @return true if the node is the vertex of the graph with the same id.
+     */
+    private boolean isInGraph(Node node) {
+        return node.id() >= 0 && node.id() < getGraph().getNVertices() && getGraph().getVertices().get(node.id()) == node;
+    }
+}
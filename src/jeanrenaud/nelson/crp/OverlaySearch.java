@@ -0,0 +1,165 @@
+package jeanrenaud.nelson.crp;
+
+import graph.core.impl.CompactAdjacency;
+import graph.core.impl.DynamicEdgeWeights;
+import jeanrenaud.nelson.dijkstra.DijkstraPriorityQueue;
+import jeanrenaud.nelson.dijkstra.SearchWorkspace;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Dijkstra search on an overlay where each node is expanded at a level: the edges of the graph at level 0, or the
+ * clique of its cell and its cut edges at a higher level. The search can be restricted to a cell. The edges closed by
+ * a weight of {@link DynamicEdgeWeights#MAX_WEIGHT} are not followed.
+ * @author Nelson Jeanrenaud
+ * @see Overlay
+ */
+class OverlaySearch {
+    /** Overlay searched. */
+    private final Overlay overlay;
+    /** Successors of the graph. */
+    private final CompactAdjacency adjacency;
+    /** Distance, previous node, previous edge and its level of each node. */
+    private final long[] distance;
+    private final int[] parent;
+    private final int[] parentEdge;
+    private final int[] parentLevel;
+    /** Search in which each node was last reached. */
+    private final int[] stamps;
+    /** Current search. */
+    private int epoch;
+    /** Queue of the nodes to settle. */
+    private final DijkstraPriorityQueue queue;
+    /** Number of nodes settled by the current search. */
+    private long iteration;
+
+    /**
+     * @param overlay the overlay searched.
+     */
+    OverlaySearch(Overlay overlay) {
+        int nbVertices = overlay.getGraph().getNVertices();
+        this.overlay = overlay;
+        this.adjacency = overlay.getAdjacency();
+        this.distance = new long[nbVertices];
+        this.parent = new int[nbVertices];
+        this.parentEdge = new int[nbVertices];
+        this.parentLevel = new int[nbVertices];
+        this.stamps = new int[nbVertices];
+        this.queue = new DijkstraPriorityQueue(nbVertices);
+    }
+
+    /**
+     * Search from a node.
+     * @param metric weights of the search.
+     * @param source origin of the search.
+     * @param target the search stops once it is settled, -1 to settle every node reached.
+     * @param levelOf level at which each node is expanded, a node expanded at a level above 0 must be a boundary
+     *                node of the level.
+     * @param cellLevel level of the cell restricting the search, 0 for no restriction.
+     * @param cell the cell restricting the search.
+     */
+    void run(Overlay.Metric metric, int source, int target, IntUnaryOperator levelOf, int cellLevel, int cell) {
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+        iteration = 0;
+        queue.clear();
+        label(source, 0, -1, -1, 0);
+        queue.add(source, 0);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            iteration++;
+            if (node == target) {
+                return;
+            }
+            int level = levelOf.applyAsInt(node);
+            if (level > 0) {
+                relaxClique(metric, node, level);
+            }
+            for (int edge = adjacency.begin(node); edge < adjacency.end(node); edge++) {
+                int successor = adjacency.target(edge);
+                long weight = metric.getWeight(edge);
+                // Above level 0 only the edges leaving the cell of the node are followed, the clique covers the others
+                if (weight != DynamicEdgeWeights.MAX_WEIGHT
+                        && (level == 0 || overlay.getCell(level, successor) != overlay.getCell(level, node))
+                        && (cellLevel == 0 || overlay.getCell(cellLevel, successor) == cell)) {
+                    relax(node, successor, distance[node] + weight, edge, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Relax the edges from a boundary node to the other boundary nodes of its cell.
+     */
+    private void relaxClique(Overlay.Metric metric, int node, int level) {
+        int cell = overlay.getCell(level, node);
+        int begin = overlay.getCellOffsets(level)[cell];
+        int size = overlay.getCellOffsets(level)[cell + 1] - begin;
+        int[] boundary = overlay.getBoundaryNodes(level);
+        long[] clique = metric.getClique(level);
+        int row = overlay.getCliqueOffset(level, cell) + overlay.getBoundaryIndex(level, node) * size;
+        for (int j = 0; j < size; j++) {
+            long weight = clique[row + j];
+            if (weight != SearchWorkspace.UNREACHED) {
+                relax(node, boundary[begin + j], distance[node] + weight, -1, level);
+            }
+        }
+    }
+
+    private void relax(int node, int successor, long newDistance, int edge, int level) {
+        if (newDistance < getDistance(successor)) {
+            label(successor, newDistance, node, edge, level);
+            queue.update(successor, newDistance);
+        }
+    }
+
+    private void label(int node, long newDistance, int previous, int edge, int level) {
+        stamps[node] = epoch;
+        distance[node] = newDistance;
+        parent[node] = previous;
+        parentEdge[node] = edge;
+        parentLevel[node] = level;
+    }
+
+    /**
+     * @param node index of the node.
+     * @return the distance of the node, {@link SearchWorkspace#UNREACHED} if it has not been reached.
+     */
+    long getDistance(int node) {
+        return stamps[node] == epoch ? distance[node] : SearchWorkspace.UNREACHED;
+    }
+
+    /**
+     * @param node index of a reached node.
+     * @return the previous node, -1 for the origin.
+     */
+    int getParent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * @param node index of a reached node.
+     * @return the index of the previous edge in the adjacency of the graph, -1 for a clique edge or the origin.
+     */
+    int getParentEdge(int node) {
+        return parentEdge[node];
+    }
+
+    /**
+     * @param node index of a reached node.
+     * @return the level of the clique of the previous edge, 0 for an edge of the graph.
+     */
+    int getParentLevel(int node) {
+        return parentLevel[node];
+    }
+
+    /**
+     * @return the number of nodes settled by the last search.
+     */
+    long getIteration() {
+        return iteration;
+    }
+}
@@ -8,7 +8,12 @@ import java.util.Objects;
 
 /**
  * Bidirectional Dijkstra algorithm.
- * Uses two Dijkstra algorithms to find the shortest path between two nodes.
+ * Uses two Dijkstra algorithms to find the shortest path between two nodes: one from the source following the
+ * successors of the graph and one from the target following its predecessors.
+ *
+ * Every edge relaxed between a node reached by one search and a node reached by the other gives a path, the length mu
+ * of the shortest one is kept. Once the sum of the smallest keys of both queues reaches mu no shorter path can be
+ * found and the search stops.
  * @author Nelson Jeanrenaud
  */
 public class BidirectionalDijkstra implements ShortestPathAlgorithm {
@@ -16,23 +21,46 @@ public class BidirectionalDijkstra implements ShortestPathAlgorithm {
     private final DijkstraConditional forward;
     /** Dijkstra algorithm to find the shortest path from the target node to the source node.*/
     private final DijkstraConditional backward;
+    /** Strategy choosing the search that performs the next iteration. */
+    private final SideSelection sideSelection;
     /** Shortest path found by the algorithm so far */
     private long shortestPathLength;
+    /** Edge joining the two searches on the shortest path found so far, in the direction of the graph. */
+    private int meetingFrom;
+    private int meetingTo;
+    private long meetingWeight;
 
     /** if the algorithm has been initialized. */
     private boolean isInitialized;
 
+    /** Source node of the current search. */
+    private Node source;
+    /** Target node of the current search. */
+    private Node target;
+
     /**
-     * Constructor.
+     * Constructor, the search with the fewest nodes in its queue performs the next iteration.
      * @param graph the graph to use.
      * @throws NullPointerException if the graph is null.
      */
     public BidirectionalDijkstra(Digraph<Node, SimpleWeightedEdge<Node>> graph) {
+        this(graph, SideSelection.SMALLEST_QUEUE);
+    }
+
+    /**
+     * Constructor.
+     * @param graph the graph to use.
+     * @param sideSelection strategy choosing the search that performs the next iteration.
+     * @throws NullPointerException if the graph or the strategy is null.
+     */
+    public BidirectionalDijkstra(Digraph<Node, SimpleWeightedEdge<Node>> graph, SideSelection sideSelection) {
         Objects.requireNonNull(graph, "The graph cannot be null.");
+        Objects.requireNonNull(sideSelection, "The side selection cannot be null.");
+        this.sideSelection = sideSelection;
         this.shortestPathLength = Long.MAX_VALUE;
         this.isInitialized = false;
-        this.forward = new DijkstraConditional(graph);
-        this.backward = new DijkstraConditional(graph);
+        this.forward = new DijkstraConditional(graph, true);
+        this.backward = new DijkstraConditional(graph, false);
 
         forward.setOther(backward);
         backward.setOther(forward);
@@ -48,7 +76,9 @@ public class BidirectionalDijkstra implements ShortestPathAlgorithm {
     private void initialize(Node source, Node target) {
         Objects.requireNonNull(source, "The source node cannot be null.");
         Objects.requireNonNull(target, "The target node cannot be null.");
-        this.shortestPathLength = Long.MAX_VALUE;
+        this.shortestPathLength = source == target ? 0 : Long.MAX_VALUE;
+        this.source = source;
+        this.target = target;
 
         forward.initialize(source, target);
         backward.initialize(target, source);
@@ -71,13 +101,18 @@ public class BidirectionalDijkstra implements ShortestPathAlgorithm {
         Objects.requireNonNull(source, "The source node cannot be null.");
         Objects.requireNonNull(target, "The target node cannot be null.");
         initialize(source, target);
-        while (!getNextIteration().doIteration()) {
+        if (!forward.mayReach(source, target)) {
+            return;
+        }
+        // An empty queue gives an infinite key, which also stops the search
+        while (saturatedSum(forward.getMinPriority(), backward.getMinPriority()) < getStoppingKey(shortestPathLength)
+                && !getNextIteration().doIteration()) {
         }
     }
 
     /**
-     * Get the shortest path length found so far.
-     * @return the shortest path length found so far. If no path has been found, returns null
+     * Get the shortest path found by the last search.
+     * @return the shortest path, null if the target can't be reached.
      * @throws IllegalStateException if the algorithm has not been initialized.
      */
     @Override
@@ -88,13 +123,66 @@ public class BidirectionalDijkstra implements ShortestPathAlgorithm {
         if(shortestPathLength == Long.MAX_VALUE) {
             return null;
         }
-        // We check which algorithm found the shortest path and build the path accordingly.
-        if(shortestPathLength == forward.getLocalShortestPathLength()) {
-            return forward.joinPath();
+        if (source == target) {
+            return new Path();
         }
-        return backward.joinPath();
+        // The labels of the meeting nodes may not be settled, but no shorter path was found through them
+        Path.Builder path = new Path.Builder(getGraph().getVertices());
+        path.append(forward.buildPath(meetingFrom));
+        path.append(meetingFrom, meetingTo, meetingWeight);
+        path.append(backward.buildPath(meetingTo));
+        return path.build();
+    }
+
+
+    /**
+     * Get the key of a node in the queue of the forward search.
+     * Goal-directed subclasses override this method and {@link #getBackwardPriority(long, int)} with potentials
+     * whose sum is constant so that both searches see the same reduced edge weights.
+     * @param distance distance of the node from the source.
+     * @param id index of the node.
+     * @return the key of the node in the forward queue.
+     */
+    protected long getForwardPriority(long distance, int id) {
+        return distance;
     }
 
+    /**
+     * Get the key of a node in the queue of the backward search.
+     * @param distance distance of the node from the target.
+     * @param id index of the node.
+     * @return the key of the node in the backward queue.
+     * @see #getForwardPriority(long, int)
+     */
+    protected long getBackwardPriority(long distance, int id) {
+        return distance;
+    }
+
+    /**
+     * Get the value that the sum of the smallest keys of both queues must reach to stop the search.
+     * Subclasses scaling the keys override it accordingly.
+     * @param shortestPathLength length mu of the shortest path found so far, {@link Long#MAX_VALUE} if none.
+     * @return mu.
+     */
+    protected long getStoppingKey(long shortestPathLength) {
+        return shortestPathLength;
+    }
+
+    /**
+     * Get the source node of the current search.
+     * @return the source node, null if the algorithm has not been initialized.
+     */
+    protected Node getSource() {
+        return source;
+    }
+
+    /**
+     * Get the target node of the current search.
+     * @return the target node, null if the algorithm has not been initialized.
+     */
+    protected Node getTarget() {
+        return target;
+    }
 
     @Override
     public long getIteration() {
@@ -108,41 +196,36 @@ public class BidirectionalDijkstra implements ShortestPathAlgorithm {
     }
 
     /**
-     * Returns which algorithm need to perform the next iteration.
-     * The rule is that the bidirectional dijkstra algorithm will alternate between performing a forward and a backward iteration.
+     * Returns which algorithm need to perform the next iteration, according to the side selection strategy.
      * @return the algorithm that need to perform the next iteration.
      */
     private Dijkstra getNextIteration() {
-        return (forward.getIteration() <= backward.getIteration()) ? forward : backward;
+        if (sideSelection == SideSelection.SMALLEST_QUEUE) {
+            return forward.getQueueSize() <= backward.getQueueSize() ? forward : backward;
+        }
+        return forward.getMinPriority() <= backward.getMinPriority() ? forward : backward;
+    }
+
+    /**
+     * Adds two keys, an infinite key giving an infinite sum.
+     */
+    private static long saturatedSum(long a, long b) {
+        return a == Long.MAX_VALUE || b == Long.MAX_VALUE || a + b < 0 ? Long.MAX_VALUE : a + b;
     }
 
     /**
      * Dijkstra algorithm used by the bidirectional dijkstra algorithm.
-     * It implements additionnal rules to determine if the algorithm should stop or not.
-     * And ways to join the paths found by the two algorithms.
+     * It updates the shortest path when it reaches a node already reached by the other algorithm.
      */
     private class DijkstraConditional extends Dijkstra {
-        /**
-         * Get the shortest path found by this algorithm so far.
-         * @return the shortest path found by this algorithm so far.
-         */
-        public long getLocalShortestPathLength() {
-            return localShortestPathLength;
-        }
-        /** the shortest path found by this algorithm so far.*/
-        private long localShortestPathLength;
-        /**
-         * The connecting node between the two algorithms for the shortest path found so far.
-         */
-        private Node shortestPathNode;
-        /**
-         * The connecting edge between the two algorithms for the shortest path found so far.
-         */
-        private SimpleWeightedEdge<Node> shortestPathEdge;
         /**
          * The other algorithm in the bidirectional dijkstra algorithm.
          */
         private DijkstraConditional other;
+        /**
+         * True if this algorithm searches from the source, false if it searches from the target.
+         */
+        private final boolean isForward;
 
         /**
          * Set the other algorithm in the bidirectional dijkstra algorithm.
@@ -155,72 +238,43 @@ public class BidirectionalDijkstra implements ShortestPathAlgorithm {
         /**
          * Initialize the algorithm.
          * @param graph the graph to use.
+         * @param isForward true if this algorithm searches from the source, following the successors of the graph.
          */
-        public DijkstraConditional(Digraph<Node, SimpleWeightedEdge<Node>> graph) {
-            super(graph);
+        public DijkstraConditional(Digraph<Node, SimpleWeightedEdge<Node>> graph, boolean isForward) {
+            super(graph, !isForward);
+            this.isForward = isForward;
         }
 
-        /**
-         * Initialize the algorithm.
-         * @param source the source node.
-         * @param target the target node.
-         */
-        @Override
-        protected void initialize(Node source, Node target) {
-            super.initialize(source, target);
-            localShortestPathLength = Long.MAX_VALUE;
-            shortestPathNode = null;
-            shortestPathEdge = null;
-        }
-
-        /**
-         * Check if the algorithm should stop.
-         * @param removedNode Node that has been removed from the queue.
-         * @return true if the algorithm should stop, false otherwise.
-         * @throws NullPointerException if the other algorithm is not set.
-         */
         @Override
-        protected boolean isFinished(MarkedNode removedNode) {
-            Objects.requireNonNull(other, "The other algorithm is not set");
-            // If the node has already been visited by the other algorithm, we stop the algorithm.
-            return super.isFinished(removedNode) ||
-                    other.getMarkedNodeById(removedNode.getNode().id()).isShortestPathKnown();
+        protected long getPriority(long distance, int id) {
+            return isForward ? getForwardPriority(distance, id) : getBackwardPriority(distance, id);
         }
 
         /**
          * Overlaod the method to update the shortest path if we can connect the two algorithms.
-         * @param edge the edge being processed.
-         * @param removedNode the node being processed.
+         * @param edge index of the edge being processed.
+         * @param removedId index of the node being processed.
          * @throws NullPointerException if the other algorithm is not set.
          */
         @Override
-        protected void processEdge(SimpleWeightedEdge<Node> edge, MarkedNode removedNode) {
-            super.processEdge(edge, removedNode);
+        protected void processEdge(int edge, int removedId) {
+            super.processEdge(edge, removedId);
             Objects.requireNonNull(other, "The other algorithm is not set");
-            if (other.getMarkedNodeById(edge.to().id()).isShortestPathKnown()) {
-                long newShortestPathLength = removedNode.getDistance()
-                        + edge.weight()
-                        + other.getMarkedNodeById(edge.to().id()).getDistance();
-                // If the new path is shorter than the shortest path found so far, we update the shortest path found so far.
-                // We don't build the path yet because we don't know if it is the shortest path or not. And building is a costly operation.
-                if (newShortestPathLength < shortestPathLength) {
-                    shortestPathLength = newShortestPathLength;
-                    localShortestPathLength = newShortestPathLength;
-                    shortestPathNode = removedNode.getNode();
-                    shortestPathEdge = edge;
-                }
+            int successorId = getAdjacency().target(edge);
+            long otherDistance = other.getTentativeDistance(successorId);
+            if (otherDistance == SearchWorkspace.UNREACHED) {
+                return;
+            }
+            long weight = getAdjacency().weight(edge);
+            long newShortestPathLength = getTentativeDistance(removedId) + weight + otherDistance;
+            // If the new path is shorter than the shortest path found so far, we update the shortest path found so far.
+            // We don't build the path yet because we don't know if it is the shortest path or not. And building is a costly operation.
+            if (newShortestPathLength < shortestPathLength) {
+                shortestPathLength = newShortestPathLength;
+                meetingFrom = isForward ? removedId : successorId;
+                meetingTo = isForward ? successorId : removedId;
+                meetingWeight = weight;
             }
-        }
-
-        /**
-         * Create the shortest path by connection the paths of the two algorithms.
-         * @return the shortest path found.
-         */
-        public Path joinPath(){
-            Path path = this.getShortestPath(shortestPathNode);
-            path.push_back(shortestPathEdge);
-            path.push_back(other.getShortestPath(shortestPathEdge.to()).reversed());
-            return path;
         }
     }
 }
@@ -0,0 +1,290 @@
+package jeanrenaud.nelson.dijkstra;
+
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bidirectional Dijkstra algorithm whose forward and backward searches run at the same time on two threads.
+ * The backward search follows the predecessors of the graph from the target.
+ *
+ * The searches share the length mu of the shortest path found so far, the nodes settled by each search and the
+ * smallest key of each queue:
+ * <ul>
+ *     <li>A search marks a node as settled (volatile write) before reading the marks of the other search for its
+ *     successors (volatile reads). For an edge between two nodes settled by different searches, at least one of the
+ *     searches therefore sees the other node settled and updates mu.</li>
+ *     <li>A search publishes the smallest key of its queue only once the node it settled has been scanned, so every
+ *     node of a smaller distance has already updated mu.</li>
+ * </ul>
+ * A search stops as soon as the sum of the two smallest keys reaches mu, its queue is empty or it settles its
+ * target, mu is then the length of the shortest path and the other search is told to stop.
+ *
+ * Each instance owns the thread of its forward search, {@link #close()} stops it.
+ * @author Nelson Jeanrenaud
+ */
+public class ConcurrentBidirectionalDijkstra implements ShortestPathAlgorithm, AutoCloseable {
+    /** Search from the source, run by the worker thread. */
+    private final ConcurrentSearch forward;
+    /** Search from the target on the transposed graph, run by the calling thread. */
+    private final ConcurrentSearch backward;
+    /** Thread running the forward search. */
+    private final ExecutorService worker;
+    /** Length of the shortest path found so far. */
+    private final AtomicLong shortestPathLength;
+    /** Set once a search has proved that mu is the length of the shortest path. */
+    private volatile boolean isDone;
+    /** Current search, used to stamp the settled marks. */
+    private int epoch;
+    /** if the algorithm has been initialized. */
+    private boolean isInitialized;
+
+    /**
+     * Constructor.
+     * @param graph the graph to use.
+     * @throws NullPointerException if the graph is null.
+     */
+    public ConcurrentBidirectionalDijkstra(Digraph<Node, SimpleWeightedEdge<Node>> graph) {
+        Objects.requireNonNull(graph, "The graph cannot be null.");
+        this.forward = new ConcurrentSearch(graph, true);
+        this.backward = new ConcurrentSearch(graph, false);
+        forward.other = backward;
+        backward.other = forward;
+        this.shortestPathLength = new AtomicLong(Long.MAX_VALUE);
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "forward-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.isInitialized = false;
+    }
+
+    @Override
+    public Digraph<Node, SimpleWeightedEdge<Node>> getGraph() {
+        return forward.getGraph();
+    }
+
+    /**
+     * Calculate the shortest path from the source to the target.
+     * @param source the source node.
+     * @param target the target node.
+     * @throws NullPointerException if the source or target node is null.
+     * @throws IllegalArgumentException if the source or target node is not in the graph.
+     * @throws IllegalStateException if the algorithm has been closed.
+     */
+    @Override
+    public void run(Node source, Node target) {
+        Objects.requireNonNull(source, "The source node cannot be null.");
+        Objects.requireNonNull(target, "The target node cannot be null.");
+        if (worker.isShutdown()) {
+            throw new IllegalStateException("The algorithm has been closed.");
+        }
+        if (++epoch == Integer.MAX_VALUE) {
+            forward.clearMarks();
+            backward.clearMarks();
+            epoch = 1;
+        }
+        forward.initialize(source, target);
+        backward.initialize(target, source);
+        shortestPathLength.set(source == target ? 0 : Long.MAX_VALUE);
+        isInitialized = true;
+        if (source == target || !forward.mayReach(source, target)) {
+            return;
+        }
+        isDone = false;
+
+        // Submitting the forward search publishes everything written above to the worker thread
+        Future<?> forwardSearch = worker.submit(forward::search);
+        try {
+            backward.search();
+        } finally {
+            // Stops the forward search if the backward search failed, it is already set otherwise
+            isDone = true;
+            // Waiting for the forward search publishes its labels to this thread
+            try {
+                forwardSearch.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the forward search", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Get the shortest path found by the last search.
+     * @return the shortest path, null if the target can't be reached.
+     * @throws IllegalStateException if the algorithm has not been initialized.
+     */
+    @Override
+    public Path getShortestPath() {
+        if (!isInitialized) {
+            throw new IllegalStateException("The algorithm has not been initialized.");
+        }
+        long length = shortestPathLength.get();
+        if (length == Long.MAX_VALUE) {
+            return null;
+        }
+        if (forward.getSource() == forward.getTarget()) {
+            return new Path();
+        }
+        ConcurrentSearch meeting = forward.meetingLength == length ? forward : backward;
+        // The origins are published before their search settles them, the labels are followed without checking it
+        Path.Builder path = new Path.Builder(getGraph().getVertices());
+        path.append(forward.buildPath(meeting.meetingFrom));
+        path.append(meeting.meetingFrom, meeting.meetingTo, meeting.meetingWeight);
+        path.append(backward.buildPath(meeting.meetingTo));
+        return path.build();
+    }
+
+    @Override
+    public long getIteration() {
+        return forward.getIteration() + backward.getIteration();
+    }
+
+    @Override
+    public String getName() {
+        return "Concurrent Bidirectional Dijkstra";
+    }
+
+    /**
+     * Stop the thread of the forward search once its current search has ended.
+     */
+    @Override
+    public void close() {
+        worker.shutdown();
+    }
+
+    /**
+     * Adds two keys, an infinite key giving an infinite sum.
+     */
+    private static long saturatedSum(long a, long b) {
+        return a == Long.MAX_VALUE || b == Long.MAX_VALUE || a + b < 0 ? Long.MAX_VALUE : a + b;
+    }
+
+    /**
+     * Search in one direction, sharing its settled nodes and the smallest key of its queue with the other search.
+     */
+    private class ConcurrentSearch extends Dijkstra {
+        /** true for the search from the source. */
+        private final boolean isForward;
+        /** Search in the other direction. */
+        private ConcurrentSearch other;
+        /** Epoch in which each node was settled by this search, read by the other search. */
+        private final AtomicIntegerArray settledStamps;
+        /** Distance of each settled node, published by the stamp written after it. */
+        private final long[] settledDistances;
+        /** Smallest key of the queue, published once the last settled node has been scanned. */
+        private volatile long minKey;
+        /** Length of the best path found by this search, with its edge from a forward to a backward settled node. */
+        private long meetingLength;
+        private int meetingFrom;
+        private int meetingTo;
+        private long meetingWeight;
+
+        /**
+         * @param graph the graph.
+         * @param isForward true for the search from the source, false for the search following the predecessors.
+         */
+        private ConcurrentSearch(Digraph<Node, SimpleWeightedEdge<Node>> graph, boolean isForward) {
+            super(graph, !isForward);
+            this.isForward = isForward;
+            this.settledStamps = new AtomicIntegerArray(graph.getNVertices());
+            this.settledDistances = new long[graph.getNVertices()];
+        }
+
+        /**
+         * Start a new search. The origin is published as settled so that the other search can meet it from its
+         * first scan.
+         */
+        @Override
+        protected void initialize(Node source, Node target) {
+            super.initialize(source, target);
+            meetingLength = Long.MAX_VALUE;
+            minKey = 0;
+            publish(source.id(), 0);
+        }
+
+        /**
+         * Forget the settled nodes of every previous search, when the epochs wrap around.
+         */
+        private void clearMarks() {
+            for (int id = 0; id < settledStamps.length(); id++) {
+                settledStamps.set(id, 0);
+            }
+        }
+
+        /**
+         * Settle nodes until the shortest path is known.
+         */
+        private void search() {
+            while (!isDone) {
+                long own = getMinPriority();
+                if (own == SearchWorkspace.UNREACHED
+                        || saturatedSum(own, other.minKey) >= shortestPathLength.get()
+                        || doIteration()) {
+                    break;
+                }
+                minKey = getMinPriority();
+            }
+            minKey = SearchWorkspace.UNREACHED;
+            isDone = true;
+        }
+
+        /**
+         * Publish the node removed from the queue before its edges are scanned.
+         */
+        @Override
+        protected boolean isFinished(int removedId) {
+            if (removedId >= 0) {
+                publish(removedId, getDistance(removedId));
+            }
+            return super.isFinished(removedId);
+        }
+
+        /**
+         * Relax the edge and update mu if its other end has been settled by the other search.
+         */
+        @Override
+        protected void processEdge(int edge, int removedId) {
+            super.processEdge(edge, removedId);
+            int successorId = getAdjacency().target(edge);
+            if (other.settledStamps.get(successorId) != epoch) {
+                return;
+            }
+            long weight = getAdjacency().weight(edge);
+            long length = getDistance(removedId) + weight + other.settledDistances[successorId];
+            long best = shortestPathLength.get();
+            while (length < best) {
+                if (shortestPathLength.compareAndSet(best, length)) {
+                    meetingLength = length;
+                    meetingFrom = isForward ? removedId : successorId;
+                    meetingTo = isForward ? successorId : removedId;
+                    meetingWeight = weight;
+                    break;
+                }
+                best = shortestPathLength.get();
+            }
+        }
+
+        /**
+         * Mark a node as settled for the other search.
+         */
+        private void publish(int id, long distance) {
+            settledDistances[id] = distance;
+            settledStamps.set(id, epoch);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package jeanrenaud.nelson.dijkstra;
+
+import graph.core.impl.CompactAdjacency;
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel one-to-all shortest distances with the delta-stepping algorithm of Meyer and Sanders.
+ * The nodes are kept in buckets of tentative distances of width delta. The first non-empty bucket is emptied by
+ * relaxing the light edges (weight at most delta) of its nodes, which may put nodes back into it, until it stays
+ * empty; the heavy edges of every node removed from it are then relaxed once. The edges of a bucket are relaxed in
+ * parallel on a fork-join pool, the distances are lowered with an atomic minimum on a shared array. The distances
+ * are the same as the ones of {@link Dijkstra}, the shortest path trees are not computed.
+ * A small delta does little redundant work but runs many short phases, a large one the opposite.
+ * @author Nelson Jeanrenaud
+ * @see Dijkstra
+ */
+public class DeltaStepping {
+    /** Number of nodes of a frontier below which its edges are relaxed on the calling thread. */
+    private static final int SEQUENTIAL_THRESHOLD = 512;
+    /** Largest number of buckets of the ring. */
+    private static final int MAX_NB_BUCKETS = 1 << 24;
+    /** Value of {@link #queuedBucket} for a node that is in no bucket. */
+    private static final long NOT_QUEUED = -1;
+
+    /** Graph of the searches. */
+    private final Digraph<Node, SimpleWeightedEdge<Node>> graph;
+    /** True if the searches follow the predecessors of the graph. */
+    private final boolean isBackward;
+    /** Width of a bucket. */
+    private final long delta;
+    /** Pool relaxing the edges. */
+    private final ForkJoinPool pool;
+
+    /** First edge of each node followed by the number of edges, the light edges of a node come first. */
+    private final int[] offsets;
+    /** Index following the last light edge of each node. */
+    private final int[] lightEnds;
+    /** Destination and weight of each edge. */
+    private final int[] targets;
+    private final long[] weights;
+
+    /** Tentative distance of each node from the source. */
+    private final AtomicLongArray distances;
+    /** Last bucket each node was put in, {@link #NOT_QUEUED} once it has been removed from it. */
+    private final long[] queuedBucket;
+    /** Last phase in which the heavy edges of each node were scheduled. */
+    private final int[] heavyStamps;
+    /** Ring of buckets, bucket i is in slot i modulo the number of slots. */
+    private final IntList[] buckets;
+    /** Number of node entries in the buckets, stale entries included. */
+    private long nbQueued;
+    /** Number of phases run, one per emptied bucket. */
+    private int phase;
+    /** Source of the last search, null before the first one. */
+    private Node source;
+
+    /**
+     * Create an engine following the successors of the graph, with the mean edge weight as delta, on the common pool.
+     * @param graph the graph.
+     * @throws NullPointerException if the graph is null.
+     */
+    public DeltaStepping(Digraph<Node, SimpleWeightedEdge<Node>> graph) {
+        this(graph, false, defaultDelta(graph), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create an engine.
+     * @param graph the graph.
+     * @param backward true to follow the predecessors of the graph and compute the distances to the source.
+     * @param delta width of a bucket.
+     * @param pool pool relaxing the edges.
+     * @throws NullPointerException if the graph or the pool is null.
+     * @throws IllegalArgumentException if delta is not positive, or so small compared to the largest edge weight
+     * that the buckets can't be held.
+     */
+    public DeltaStepping(Digraph<Node, SimpleWeightedEdge<Node>> graph, boolean backward, long delta,
+                         ForkJoinPool pool) {
+        Objects.requireNonNull(graph, "Graph cannot be null");
+        Objects.requireNonNull(pool, "Pool cannot be null");
+        if (delta <= 0) {
+            throw new IllegalArgumentException("delta must be positive");
+        }
+        this.graph = graph;
+        this.isBackward = backward;
+        this.delta = delta;
+        this.pool = pool;
+
+        CompactAdjacency adjacency = backward
+                ? graph.getPredecessorAdjacency(SimpleWeightedEdge.WEIGHER)
+                : graph.getCompactAdjacency(SimpleWeightedEdge.WEIGHER);
+        int nbVertices = adjacency.getNVertices();
+        this.offsets = new int[nbVertices + 1];
+        this.lightEnds = new int[nbVertices];
+        this.targets = new int[adjacency.getNEdges()];
+        this.weights = new long[adjacency.getNEdges()];
+        long maxWeight = 0;
+        for (int v = 0; v < nbVertices; v++) {
+            int light = adjacency.begin(v);
+            int heavy = adjacency.end(v);
+            for (int e = adjacency.begin(v); e < adjacency.end(v); e++) {
+                int slot = adjacency.weight(e) <= delta ? light++ : --heavy;
+                targets[slot] = adjacency.target(e);
+                weights[slot] = adjacency.weight(e);
+                maxWeight = Math.max(maxWeight, adjacency.weight(e));
+            }
+            offsets[v + 1] = adjacency.end(v);
+            lightEnds[v] = light;
+        }
+
+        // The queued distances span at most the largest weight above the current bucket
+        long nbBuckets = maxWeight / delta + 2;
+        if (nbBuckets > MAX_NB_BUCKETS) {
+            throw new IllegalArgumentException("delta is too small for the largest edge weight " + maxWeight);
+        }
+        this.buckets = new IntList[Integer.highestOneBit((int) nbBuckets - 1) << 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new IntList();
+        }
+        this.distances = new AtomicLongArray(nbVertices);
+        this.queuedBucket = new long[nbVertices];
+        this.heavyStamps = new int[nbVertices];
+    }
+
+    /**
+     * @param graph the graph.
+     * @return the mean edge weight of the graph, at least 1.
+     */
+    private static long defaultDelta(Digraph<Node, SimpleWeightedEdge<Node>> graph) {
+        CompactAdjacency adjacency = Objects.requireNonNull(graph, "Graph cannot be null")
+                .getCompactAdjacency(SimpleWeightedEdge.WEIGHER);
+        long sum = 0;
+        for (int e = 0; e < adjacency.getNEdges(); e++) {
+            sum += adjacency.weight(e);
+        }
+        return Math.max(1, adjacency.getNEdges() == 0 ? 1 : sum / adjacency.getNEdges());
+    }
+
+    /**
+     * Get the graph of the searches.
+     * @return the graph.
+     */
+    public Digraph<Node, SimpleWeightedEdge<Node>> getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return true if the searches follow the predecessors of the graph.
+     */
+    public boolean isBackward() {
+        return isBackward;
+    }
+
+    /**
+     * @return the width of a bucket.
+     */
+    public long getDelta() {
+        return delta;
+    }
+
+    /**
+     * @return the number of buckets emptied by the last search.
+     */
+    public int getNbPhases() {
+        return phase;
+    }
+
+    /**
+     * Compute the distances from the source to every node, or from every node to the source in backward mode.
+     * @param source the source.
+     * @throws NullPointerException if the source is null.
+     * @throws IllegalArgumentException if the source is not in the graph.
+     */
+    public void run(Node source) {
+        Objects.requireNonNull(source, "Source cannot be null");
+        if (source.id() < 0 || source.id() >= graph.getNVertices() || graph.getVertices().get(source.id()) != source) {
+            throw new IllegalArgumentException("Node " + source.id() + " is not in the graph");
+        }
+        this.source = source;
+        for (int v = 0; v < distances.length(); v++) {
+            distances.set(v, SearchWorkspace.UNREACHED);
+        }
+        Arrays.fill(queuedBucket, NOT_QUEUED);
+        Arrays.fill(heavyStamps, 0);
+        for (IntList bucket : buckets) {
+            bucket.clear();
+        }
+        nbQueued = 0;
+        phase = 0;
+
+        distances.set(source.id(), 0);
+        enqueue(source.id());
+        long current = 0;
+        while (nbQueued > 0) {
+            while (bucket(current).isEmpty()) {
+                current++;
+            }
+            phase++;
+            IntList removed = new IntList();
+            // Light edges may put nodes back into the current bucket, empty it until it stays empty
+            while (!bucket(current).isEmpty()) {
+                IntList frontier = take(current);
+                for (int i = 0; i < frontier.size; i++) {
+                    if (heavyStamps[frontier.values[i]] != phase) {
+                        heavyStamps[frontier.values[i]] = phase;
+                        removed.add(frontier.values[i]);
+                    }
+                }
+                enqueueAll(relax(frontier, true));
+            }
+            enqueueAll(relax(removed, false));
+        }
+    }
+
+    /**
+     * @param id id of a node.
+     * @return the distance of the node from the source of the last search, {@link SearchWorkspace#UNREACHED} if the
+     * node can't be reached.
+     * @throws IllegalStateException if no search has been run.
+     */
+    public long getDistance(int id) {
+        if (source == null) {
+            throw new IllegalStateException("No search has been run");
+        }
+        return distances.get(id);
+    }
+
+    /**
+     * @return a copy of the distances of the last search indexed by node id, {@link SearchWorkspace#UNREACHED} for
+     * the nodes that can't be reached.
+     * @throws IllegalStateException if no search has been run.
+     */
+    public long[] getDistances() {
+        if (source == null) {
+            throw new IllegalStateException("No search has been run");
+        }
+        long[] copy = new long[distances.length()];
+        for (int v = 0; v < copy.length; v++) {
+            copy[v] = distances.get(v);
+        }
+        return copy;
+    }
+
+    private IntList bucket(long index) {
+        return buckets[(int) index & (buckets.length - 1)];
+    }
+
+    /**
+     * Remove the nodes of a bucket, skipping the entries left by nodes that have moved to a lower bucket since.
+     * @param index index of the bucket.
+     * @return the nodes of the bucket.
+     */
+    private IntList take(long index) {
+        IntList bucket = bucket(index);
+        IntList frontier = new IntList();
+        for (int i = 0; i < bucket.size; i++) {
+            int v = bucket.values[i];
+            if (queuedBucket[v] == index) {
+                queuedBucket[v] = NOT_QUEUED;
+                frontier.add(v);
+            }
+        }
+        nbQueued -= bucket.size;
+        bucket.clear();
+        return frontier;
+    }
+
+    /**
+     * Put a node in the bucket of its distance, unless it is already in it.
+     */
+    private void enqueue(int v) {
+        long index = distances.get(v) / delta;
+        if (queuedBucket[v] != index) {
+            queuedBucket[v] = index;
+            bucket(index).add(v);
+            nbQueued++;
+        }
+    }
+
+    private void enqueueAll(IntList improved) {
+        for (int i = 0; i < improved.size; i++) {
+            enqueue(improved.values[i]);
+        }
+    }
+
+    /**
+     * Relax the light or heavy edges of some nodes, in parallel if there are enough of them.
+     * @return the nodes whose distance was lowered, possibly several times.
+     */
+    private IntList relax(IntList nodes, boolean light) {
+        if (nodes.size < SEQUENTIAL_THRESHOLD) {
+            return relax(nodes, 0, nodes.size, light);
+        }
+        return pool.invoke(new RelaxTask(nodes, 0, nodes.size, light));
+    }
+
+    private IntList relax(IntList nodes, int begin, int end, boolean light) {
+        IntList improved = new IntList();
+        for (int i = begin; i < end; i++) {
+            int v = nodes.values[i];
+            long distance = distances.get(v);
+            int first = light ? offsets[v] : lightEnds[v];
+            int last = light ? lightEnds[v] : offsets[v + 1];
+            for (int e = first; e < last; e++) {
+                if (lower(targets[e], distance + weights[e])) {
+                    improved.add(targets[e]);
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Atomic minimum of the distance of a node.
+     * @return true if the distance was lowered.
+     */
+    private boolean lower(int v, long distance) {
+        long current = distances.get(v);
+        while (distance < current) {
+            if (distances.compareAndSet(v, current, distance)) {
+                return true;
+            }
+            current = distances.get(v);
+        }
+        return false;
+    }
+
+    /**
+     * Relaxation of a range of nodes, split in halves until it is small enough.
+     */
+    private class RelaxTask extends RecursiveTask<IntList> {
+        private static final long serialVersionUID = 1L;
+
+        private final IntList nodes;
+        private final int begin;
+        private final int end;
+        private final boolean light;
+
+        private RelaxTask(IntList nodes, int begin, int end, boolean light) {
+            this.nodes = nodes;
+            this.begin = begin;
+            this.end = end;
+            this.light = light;
+        }
+
+        @Override
+        protected IntList compute() {
+            if (end - begin <= SEQUENTIAL_THRESHOLD) {
+                return relax(nodes, begin, end, light);
+            }
+            int middle = (begin + end) >>> 1;
+            RelaxTask left = new RelaxTask(nodes, begin, middle, light);
+            left.fork();
+            IntList improved = new RelaxTask(nodes, middle, end, light).compute();
+            improved.addAll(left.join());
+            return improved;
+        }
+    }
+
+    /**
+     * Growable array of node ids.
+     */
+    private static class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+
+        private void addAll(IntList other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(2 * values.length, size + other.size));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+    }
+}
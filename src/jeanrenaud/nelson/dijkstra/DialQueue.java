@@ -0,0 +1,240 @@
+package jeanrenaud.nelson.dijkstra;
+
+import java.util.Arrays;
+
+/**
+ * Monotone bucket queue (Dial's algorithm) of vertex ids with long keys.
+ * Bucket b holds the keys between b * width and (b + 1) * width - 1. Once the smallest key has been read, every key
+ * must be at least the last smallest key read until the queue is cleared, which holds for Dijkstra with non-negative
+ * edge weights and consistent potentials. The queued keys then span a bounded range, the buckets are kept in a ring
+ * that grows when a key falls beyond it. Buckets are doubly linked lists threaded through arrays indexed by vertex
+ * id, a key is updated in constant time. A bucket wider than one key is scanned to find its smallest key, wide
+ * buckets trade fewer empty buckets for longer scans.
+ * @author Nelson Jeanrenaud
+ * @see Dijkstra
+ */
+public class DialQueue implements VertexPriorityQueue {
+    /** Initial number of buckets of the ring. */
+    private static final int INITIAL_NB_BUCKETS = 1024;
+    /** Value stored in {@link #slots} for a vertex that is not in the queue, and end of a list. */
+    private static final int ABSENT = -1;
+
+    /** Range of keys of a bucket. */
+    private final long width;
+    /** First vertex of each bucket of the ring, the number of buckets is a power of two. */
+    private int[] heads;
+    /** Next and previous vertex in the bucket of each vertex. */
+    private final int[] next;
+    private final int[] previous;
+    /** Slot of the ring holding each vertex, {@link #ABSENT} if it is not in the queue. */
+    private final int[] slots;
+    /** Key of each queued vertex. */
+    private final long[] keys;
+    /** First bucket of the ring, no queued key belongs to a lower bucket. */
+    private long current;
+    /** Highest bucket of a key added since the queue was cleared. */
+    private long highest;
+    /** True once the smallest key has been read, keys can't be smaller than it afterwards. */
+    private boolean hasRead;
+    /** Number of vertices in the queue. */
+    private int size;
+
+    /**
+     * Creates an empty queue with buckets of a single key.
+     * @param capacity number of vertices in the graph, vertex ids must be between 0 and capacity - 1
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public DialQueue(int capacity) {
+        this(capacity, 1);
+    }
+
+    /**
+     * Creates an empty queue.
+     * @param capacity number of vertices in the graph, vertex ids must be between 0 and capacity - 1
+     * @param width range of keys of a bucket
+     * @throws IllegalArgumentException if the capacity is negative or the width is not positive
+     */
+    public DialQueue(int capacity, long width) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity cannot be negative");
+        }
+        if (width <= 0) {
+            throw new IllegalArgumentException("width must be positive");
+        }
+        this.width = width;
+        this.heads = new int[INITIAL_NB_BUCKETS];
+        Arrays.fill(heads, ABSENT);
+        this.next = new int[capacity];
+        this.previous = new int[capacity];
+        this.slots = new int[capacity];
+        Arrays.fill(slots, ABSENT);
+        this.keys = new long[capacity];
+        clear();
+    }
+
+    /**
+     * @return the range of keys of a bucket
+     */
+    public long getWidth() {
+        return width;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(int vertex) {
+        return slots[vertex] != ABSENT;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalArgumentException if the key is smaller than the smallest key read
+     */
+    @Override
+    public void add(int vertex, long key) {
+        if (contains(vertex)) {
+            throw new IllegalArgumentException("vertex " + vertex + " is already in the queue");
+        }
+        keys[vertex] = key;
+        link(vertex, slot(key));
+        size++;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalArgumentException if the key is smaller than the smallest key read
+     */
+    @Override
+    public void update(int vertex, long key) {
+        if (!contains(vertex)) {
+            add(vertex, key);
+            return;
+        }
+        int slot = slot(key);
+        keys[vertex] = key;
+        if (slot != slots[vertex]) {
+            unlink(vertex);
+            link(vertex, slot);
+        }
+    }
+
+    @Override
+    public long peekKey() {
+        if (size == 0) {
+            throw new IllegalStateException("the queue is empty");
+        }
+        return keys[smallest()];
+    }
+
+    @Override
+    public int poll() {
+        if (size == 0) {
+            return ABSENT;
+        }
+        int vertex = smallest();
+        unlink(vertex);
+        slots[vertex] = ABSENT;
+        size--;
+        return vertex;
+    }
+
+    /**
+     * Remove all the vertices from the queue. Runs in time proportional to the number of buckets.
+     */
+    @Override
+    public void clear() {
+        for (int slot = 0; slot < heads.length; slot++) {
+            for (int vertex = heads[slot]; vertex != ABSENT; vertex = next[vertex]) {
+                slots[vertex] = ABSENT;
+            }
+            heads[slot] = ABSENT;
+        }
+        current = Long.MAX_VALUE;
+        highest = Long.MIN_VALUE;
+        hasRead = false;
+        size = 0;
+    }
+
+    /**
+     * Find the vertex with the smallest key, moving to the first non-empty bucket.
+     * @return the vertex, the queue must not be empty
+     */
+    private int smallest() {
+        hasRead = true;
+        int mask = heads.length - 1;
+        while (heads[(int) current & mask] == ABSENT) {
+            current++;
+        }
+        int best = heads[(int) current & mask];
+        if (width > 1) {
+            for (int vertex = next[best]; vertex != ABSENT; vertex = next[vertex]) {
+                if (keys[vertex] < keys[best]) {
+                    best = vertex;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the slot of the ring of a key, growing the ring if the key is beyond it.
+     */
+    private int slot(long key) {
+        long bucket = Math.floorDiv(key, width);
+        if (bucket < current) {
+            if (hasRead) {
+                throw new IllegalArgumentException("key " + key + " is smaller than the smallest key read");
+            }
+            current = bucket;
+        }
+        highest = Math.max(highest, bucket);
+        if (highest - current >= heads.length) {
+            grow(highest - current + 1);
+        }
+        return (int) bucket & (heads.length - 1);
+    }
+
+    /**
+     * Grow the ring so that it holds at least the given number of buckets from the current one.
+     */
+    private void grow(long nbBuckets) {
+        if (nbBuckets > 1 << 30) {
+            throw new IllegalArgumentException("the keys span more than 2^30 buckets, use a larger width");
+        }
+        int[] old = heads;
+        heads = new int[Integer.highestOneBit((int) nbBuckets - 1) << 1];
+        Arrays.fill(heads, ABSENT);
+        for (int slot = 0; slot < old.length; slot++) {
+            int vertex = old[slot];
+            while (vertex != ABSENT) {
+                int following = next[vertex];
+                link(vertex, (int) Math.floorDiv(keys[vertex], width) & (heads.length - 1));
+                vertex = following;
+            }
+        }
+    }
+
+    private void link(int vertex, int slot) {
+        slots[vertex] = slot;
+        previous[vertex] = ABSENT;
+        next[vertex] = heads[slot];
+        if (heads[slot] != ABSENT) {
+            previous[heads[slot]] = vertex;
+        }
+        heads[slot] = vertex;
+    }
+
+    private void unlink(int vertex) {
+        if (previous[vertex] != ABSENT) {
+            next[previous[vertex]] = next[vertex];
+        } else {
+            heads[slots[vertex]] = next[vertex];
+        }
+        if (next[vertex] != ABSENT) {
+            previous[next[vertex]] = previous[vertex];
+        }
+    }
+}
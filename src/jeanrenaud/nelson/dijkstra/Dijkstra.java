@@ -1,13 +1,19 @@
 package jeanrenaud.nelson.dijkstra;
 
+import graph.core.impl.CompactAdjacency;
 import graph.core.impl.Digraph;
+import graph.core.impl.DynamicEdgeWeights;
 import graph.core.impl.SimpleWeightedEdge;
+import graph.core.impl.StronglyConnectedComponents;
 import jeanrenaud.nelson.graph.Node;
 
 import java.util.*;
+import java.util.function.IntFunction;
 
 /**
  * Implementation of the Dijkstra algorithm on a weighted non-oriented graph.
+ * In backward mode the search follows the predecessors of the graph: it computes the shortest paths from every node
+ * to the source of the search.
  * @author Nelson Jeanrenaud
  */
 public class Dijkstra implements ShortestPathAlgorithm {
@@ -23,9 +29,31 @@ public class Dijkstra implements ShortestPathAlgorithm {
     private final Digraph<Node, SimpleWeightedEdge<Node>> graph;
 
     /**
-     * List of all the nodes in the graph with their distance Lambda from the source and previous node.
+     * Successors of the graph in CSR format, used by the relaxation loop.
      */
-    private final MarkedNode[] markedNodes;
+    private CompactAdjacency adjacency;
+
+    /**
+     * Weights updated while the graph is searched, null if the weights are those of the adjacency. Each search
+     * reads a single snapshot of them.
+     */
+    private final DynamicEdgeWeights dynamicWeights;
+
+    /**
+     * Components of the graph used to reject unreachable targets without searching, null if the adjacency is not
+     * the one of the graph.
+     */
+    private final StronglyConnectedComponents components;
+
+    /**
+     * True if the search follows the edges backwards, from their destination to their origin.
+     */
+    private final boolean isBackward;
+
+    /**
+     * Labels of the nodes reached by the current search: distance Lambda from the source, previous node and edge.
+     */
+    private final SearchWorkspace labels;
 
     /**
      * Source node on which the algorithm is applied.
@@ -47,7 +75,7 @@ public class Dijkstra implements ShortestPathAlgorithm {
     /**
      * Priority queue of the nodes to visit.
      */
-    private final DijkstraPriorityQueue nodePriorityQueue;
+    private final VertexPriorityQueue nodePriorityQueue;
 
     public Digraph<Node, SimpleWeightedEdge<Node>> getGraph() {
         return graph;
@@ -58,7 +86,8 @@ public class Dijkstra implements ShortestPathAlgorithm {
 
     @Override
     public String getName() {
-        return "Dijkstra";
+        return nodePriorityQueue instanceof DijkstraPriorityQueue
+                ? "Dijkstra" : "Dijkstra (" + nodePriorityQueue.getClass().getSimpleName() + ")";
     }
 
     /**
@@ -66,11 +95,90 @@ public class Dijkstra implements ShortestPathAlgorithm {
      * @param graph Graph on which the algorithm is applied.
      */
     public Dijkstra(Digraph<Node, SimpleWeightedEdge<Node>> graph) {
+        this(graph, false);
+    }
+
+    /**
+     * Create a new Dijkstra instance searching forward or backward. A backward search started at a node t computes
+     * the shortest paths to t: {@link #getShortestPath(Node)} returns the path from the given node to t.
+     * @param graph Graph on which the algorithm is applied.
+     * @param backward true to follow the predecessors of the graph instead of its successors.
+     */
+    public Dijkstra(Digraph<Node, SimpleWeightedEdge<Node>> graph, boolean backward) {
+        this(graph, backward, DijkstraPriorityQueue::new);
+    }
+
+    /**
+     * Create a new Dijkstra instance with another priority queue than the binary heap, e.g. a {@link RadixHeap} or a
+     * {@link DialQueue} for integer keys.
+     * @param graph Graph on which the algorithm is applied.
+     * @param backward true to follow the predecessors of the graph instead of its successors.
+     * @param queueFactory Creates the priority queue from the number of nodes of the graph.
+     */
+    public Dijkstra(Digraph<Node, SimpleWeightedEdge<Node>> graph, boolean backward,
+                    IntFunction<? extends VertexPriorityQueue> queueFactory) {
+        this(graph, backward
+                ? graph.getPredecessorAdjacency(SimpleWeightedEdge.WEIGHER)
+                : graph.getCompactAdjacency(SimpleWeightedEdge.WEIGHER), null, backward, queueFactory);
+    }
+
+    /**
+     * Create a new Dijkstra instance following the edges of the given adjacency instead of the graph successors,
+     * e.g. its transpose to compute the distances to a node. The paths are built from the edges of the adjacency.
+     * Unreachable targets are only rejected before searching when the adjacency is the one of the graph.
+     * @param graph Graph on which the algorithm is applied.
+     * @param adjacency Edges between the nodes of the graph.
+     * @throws IllegalArgumentException if the adjacency does not have the same number of nodes as the graph.
+     */
+    public Dijkstra(Digraph<Node, SimpleWeightedEdge<Node>> graph, CompactAdjacency adjacency) {
+        this(graph, adjacency, null, false, DijkstraPriorityQueue::new);
+    }
+
+    /**
+     * Create a new Dijkstra instance reading weights updated while it is used. Each search reads the snapshot of
+     * the weights current when it starts until it ends, the updates published meanwhile apply to the next search.
+     * The closed edges are not followed, see {@link DynamicEdgeWeights#MAX_WEIGHT}.
+     * @param graph Graph on which the algorithm is applied.
+     * @param backward true to follow the predecessors of the graph instead of its successors.
+     * @param weights Weights of the edges of the successors of the graph, built on
+     *                {@code graph.getCompactAdjacency(SimpleWeightedEdge.WEIGHER)}.
+     * @throws IllegalArgumentException if the weights were built on another adjacency.
+     */
+    public Dijkstra(Digraph<Node, SimpleWeightedEdge<Node>> graph, boolean backward, DynamicEdgeWeights weights) {
+        this(graph, Objects.requireNonNull(weights, "Weights cannot be null").getAdjacency(), weights, backward,
+                DijkstraPriorityQueue::new);
+        if (weights.getAdjacency() != graph.getCompactAdjacency(SimpleWeightedEdge.WEIGHER)) {
+            throw new IllegalArgumentException("The weights do not match the graph");
+        }
+    }
+
+    /**
+     * @param graph Graph on which the algorithm is applied.
+     * @param adjacency Edges between the nodes of the graph, the predecessors of the graph in backward mode.
+     * @param weights Weights updated while the graph is searched, null to use the weights of the adjacency.
+     * @param backward true if the search follows the predecessors of the graph.
+     * @param queueFactory Creates the priority queue from the number of nodes of the graph.
+     */
+    private Dijkstra(Digraph<Node, SimpleWeightedEdge<Node>> graph, CompactAdjacency adjacency,
+                     DynamicEdgeWeights weights, boolean backward,
+                     IntFunction<? extends VertexPriorityQueue> queueFactory) {
         Objects.requireNonNull(graph, "Graph cannot be null");
+        Objects.requireNonNull(adjacency, "Adjacency cannot be null");
+        Objects.requireNonNull(queueFactory, "Queue factory cannot be null");
+        if (adjacency.getNVertices() != graph.getNVertices()) {
+            throw new IllegalArgumentException("The adjacency does not match the graph");
+        }
         this.graph = graph;
+        this.adjacency = adjacency;
+        this.dynamicWeights = weights;
+        this.isBackward = backward;
+        // Weights never add or remove edges, the components of the graph stay valid whatever their updates
+        this.components = backward || weights != null
+                || adjacency == graph.getCompactAdjacency(SimpleWeightedEdge.WEIGHER)
+                ? graph.getStronglyConnectedComponents() : null;
         this.nbVertices = graph.getNVertices();
-        this.nodePriorityQueue = new DijkstraPriorityQueue(nbVertices);
-        this.markedNodes = new MarkedNode[nbVertices];
+        this.nodePriorityQueue = Objects.requireNonNull(queueFactory.apply(nbVertices), "Queue cannot be null");
+        this.labels = new SearchWorkspace(nbVertices);
         this.isInitialized = false;
     }
 
@@ -83,39 +191,72 @@ public class Dijkstra implements ShortestPathAlgorithm {
      */
     protected void initialize(Node source, Node target) {
         Objects.requireNonNull(source, "Source node cannot be null");
-        if(!graph.getVertices().contains(source) || (target != null && !graph.getVertices().contains(target))) {
+        if(!isInGraph(source) || (target != null && !isInGraph(target))) {
             throw new IllegalArgumentException("Source or target node is not in the graph");
         }
         this.source = source;
         this.target = target;
+        if (dynamicWeights != null) {
+            DynamicEdgeWeights.Snapshot snapshot = dynamicWeights.snapshot();
+            adjacency = isBackward ? snapshot.getPredecessorAdjacency() : snapshot.getAdjacency();
+        }
         iteration = 0;
         nodePriorityQueue.clear();
 
-        // Initialize the nodes marks
-        int index = 0;
-        for (Node node : graph.getVertices()) {
-            MarkedNode m = (new MarkedNode(
-                    node,
-                    node.equals(source) ? 0 : Integer.MAX_VALUE,
-                    null,
-                    null));
-            nodePriorityQueue.add(m);
-            markedNodes[index++] = m;
-        }
+        // Only the source is labelled, the other nodes are labelled when they are first reached
+        labels.reset();
+        labels.label(source.id(), 0, -1, -1);
+        nodePriorityQueue.add(source.id(), getPriority(0, source.id()));
         isInitialized = true;
     }
 
     /**
-     * Get the MarkedNode with the given index.
-     * @param id Index of the node.
-     * @return Node with the given index.
-     * @throws IndexOutOfBoundsException if the index is out of bounds.
+     * Check that a node belongs to the graph by looking it up by id.
+     * @param node Node to check.
+     * @return true if the node is the vertex of the graph with the same id.
      */
-    protected MarkedNode getMarkedNodeById(int id) {
-        if(id < 0 || id >= nbVertices) {
-            throw new IndexOutOfBoundsException("Invalid node id");
+    protected boolean isInGraph(Node node) {
+        return node.id() >= 0 && node.id() < nbVertices && graph.getVertices().get(node.id()) == node;
+    }
+
+    /**
+     * Check in constant time if a search from a node may reach another, using the strongly connected components.
+     * @param from Origin node of the search.
+     * @param to Destination node.
+     * @return false if the search certainly can't reach the destination.
+     */
+    protected boolean mayReach(Node from, Node to) {
+        if (components == null) {
+            return true;
         }
-        return markedNodes[id];
+        return isBackward ? components.mayReach(to.id(), from.id()) : components.mayReach(from.id(), to.id());
+    }
+
+    /**
+     * Get the distance of a node reached by the current search, which may not be the shortest one yet.
+     * @param id Index of the node.
+     * @return the distance of the node, {@link SearchWorkspace#UNREACHED} if it has not been reached.
+     */
+    protected long getTentativeDistance(int id) {
+        return labels.getDistance(id);
+    }
+
+    /**
+     * Get the previous node of a node reached by the current search, which may change until the node is settled.
+     * @param id Index of the node.
+     * @return the index of the previous node, -1 for the source and the nodes that have not been reached.
+     */
+    protected int getTentativeParent(int id) {
+        return labels.isReached(id) ? labels.getParent(id) : -1;
+    }
+
+    /**
+     * Check if the shortest path to a node is known.
+     * @param id Index of the node.
+     * @return true if the node has been removed from the queue in the current search.
+     */
+    protected boolean isSettled(int id) {
+        return labels.isSettled(id);
     }
 
     /**
@@ -128,6 +269,11 @@ public class Dijkstra implements ShortestPathAlgorithm {
     public void run(Node source, Node target) {
         Objects.requireNonNull(source, "Source node cannot be null");
         initialize(source, target);
+        if (target != null && !mayReach(source, target)) {
+            // Nothing to search, the target stays unsettled
+            nodePriorityQueue.clear();
+            return;
+        }
         while (!doIteration()){
         }
     }
@@ -143,54 +289,85 @@ public class Dijkstra implements ShortestPathAlgorithm {
         }
         iteration++;
         // Remove the node with the smallest distance from the queue
-        MarkedNode removedNode = nodePriorityQueue.poll();
-        // If that distance is infinite, there is no path to the target
+        int removedId = nodePriorityQueue.poll();
+        if (removedId >= 0) {
+            labels.settle(removedId);
+        }
         // If the removed node is the target, we are done
         // If the there is no node in the queue, we are done
-        if (isFinished(removedNode)) return true;
+        if (isFinished(removedId)) return true;
         // For each successor of the node:
-        graph.getSuccessorList(removedNode.getNode().id()).forEach(
-                (successorEdge) -> processEdge(successorEdge, removedNode)
-        );
+        int end = adjacency.end(removedId);
+        for (int edge = adjacency.begin(removedId); edge < end; edge++) {
+            processEdge(edge, removedId);
+        }
         return false;
     }
 
     /**
-     * Update the distance of a node if the remomovedNode improved the path.
-     * @param edge Edge between the removed node and the successor.
-     * @param removedNode Node removed from the queue.
-     * @throws NullPointerException if the edge or the removed node is null.
+     * Update the distance of a node if the removed node improved the path.
+     * @param edge Index of the edge between the removed node and the successor.
+     * @param removedId Index of the node removed from the queue.
      */
-    protected void processEdge(SimpleWeightedEdge<Node> edge, MarkedNode removedNode) {
-        Objects.requireNonNull(edge, "Edge cannot be null");
-        Objects.requireNonNull(removedNode, "Removed node cannot be null");
-        long newDistance = removedNode.getDistance() + edge.weight();
-        MarkedNode successor = markedNodes[edge.to().id()];
+    protected void processEdge(int edge, int removedId) {
+        long weight = adjacency.weight(edge);
+        if (weight == DynamicEdgeWeights.MAX_WEIGHT && dynamicWeights != null) {
+            // Closed edge
+            return;
+        }
+        int successorId = adjacency.target(edge);
+        long newDistance = labels.getDistance(removedId) + weight;
         // If the distance to the successor is greater than the distance to the node plus the edge weight
-        if (newDistance < successor.getDistance()) {
-            // Update the distance to the successor
-            // Update the predecessor of the successor
-            successor.update(newDistance, removedNode, edge);
-            nodePriorityQueue.update(successor);
+        if (newDistance < labels.getDistance(successorId)) {
+            // Update the distance and the predecessor of the successor
+            labels.label(successorId, newDistance, removedId, edge);
+            nodePriorityQueue.update(successorId, getPriority(newDistance, successorId));
         }
     }
 
+    /**
+     * Get the key of a node in the priority queue. Dijkstra uses the distance itself, goal-directed
+     * subclasses add a consistent potential so that the settled distances stay exact.
+     * @param distance Distance of the node from the source.
+     * @param id Index of the node.
+     * @return the key of the node in the priority queue.
+     */
+    protected long getPriority(long distance, int id) {
+        return distance;
+    }
+
+    /**
+     * Get the smallest key of the priority queue, the key of the next node to settle.
+     * @return the smallest key, {@link SearchWorkspace#UNREACHED} if the queue is empty.
+     */
+    protected long getMinPriority() {
+        return nodePriorityQueue.isEmpty() ? SearchWorkspace.UNREACHED : nodePriorityQueue.peekKey();
+    }
+
+    /**
+     * Get the number of nodes in the priority queue.
+     * @return the number of reached nodes that have not been settled yet.
+     */
+    protected int getQueueSize() {
+        return nodePriorityQueue.size();
+    }
+
     /**
      * Check if the algorithm has finished.
-     * @param removedNode Node that has been removed from the queue.
+     * @param removedId Index of the node that has been removed from the queue, -1 if the queue was empty.
      * @return true if the algorithm has finished, false otherwise.
      */
-    protected boolean isFinished(MarkedNode removedNode) {
-        return removedNode == null || removedNode.getDistance() == Integer.MAX_VALUE || (target != null && removedNode.getNode().id() == target.id());
+    protected boolean isFinished(int removedId) {
+        return removedId < 0 || (target != null && removedId == target.id());
     }
 
     @Override
     public String toString() {
-        return iteration + " - " + Arrays.toString(markedNodes);
+        return iteration + " - " + labels;
     }
 
     /**
-     * Get the path from the source to the given node.
+     * Get the path from the source to the given node, from the given node to the source in backward mode.
      * @param destination Node to which the path is computed.
      * @return The path from the source to the given node.
      * @throws IllegalArgumentException if the destination is not in the graph.
@@ -206,17 +383,76 @@ public class Dijkstra implements ShortestPathAlgorithm {
         if(!isInitialized) {
             throw new IllegalStateException("Algorithm has not been initialized");
         }
-        MarkedNode targetNode = markedNodes[destination.id()];
-        if(!targetNode.isShortestPathKnown()) {
+        if(!labels.isSettled(destination.id())) {
             throw new NoPathException();
         }
-        Path path = new Path();
-        MarkedNode currentNode = targetNode;
-        while(currentNode.getPreviousEdge() != null) {
-            path.push_front(currentNode.getPreviousEdge());
-            currentNode = currentNode.getPrevious();
+        return buildPath(destination.id());
+    }
+
+    /**
+     * Build the path from the source to a reached node by following the previous nodes, from the node to the source
+     * in backward mode.
+     * @param destination Index of a node reached by the current search.
+     * @return The path between the source and the node, the shortest one only if the node is settled.
+     */
+    protected Path buildPath(int destination) {
+        // The parents are followed from the node to the source, each edge is appended from the node to its parent
+        Path.Builder path = new Path.Builder(graph.getVertices());
+        for (int id = destination; labels.getParent(id) >= 0; id = labels.getParent(id)) {
+            path.append(id, labels.getParent(id), adjacency.weight(labels.getParentEdge(id)));
+        }
+        // In backward mode the edges of the adjacency already lead from the nodes to their parents in the graph
+        return isBackward ? path.build() : path.build().reversed();
+    }
+
+    /**
+     * Get the distance from the source of the last search to a node.
+     * @param id Index of the node.
+     * @return the shortest distance to the node, or {@link SearchWorkspace#UNREACHED} if it has not been settled.
+     * @throws IllegalStateException if the algorithm has not been initialized.
+     */
+    public long getDistance(int id) {
+        if(!isInitialized) {
+            throw new IllegalStateException("Algorithm has not been initialized");
+        }
+        return labels.isSettled(id) ? labels.getDistance(id) : SearchWorkspace.UNREACHED;
+    }
+
+    /**
+     * Get the previous node on the shortest path from the source of the last search to a node.
+     * @param id Index of the node.
+     * @return the index of the previous node, or -1 for the source and the nodes that have not been settled.
+     * @throws IllegalStateException if the algorithm has not been initialized.
+     */
+    public int getPrevious(int id) {
+        if(!isInitialized) {
+            throw new IllegalStateException("Algorithm has not been initialized");
         }
-        return path;
+        return labels.isSettled(id) ? labels.getParent(id) : -1;
+    }
+
+    /**
+     * Get the successors of the graph in CSR format.
+     * @return the successors of the graph in CSR format.
+     */
+    protected CompactAdjacency getAdjacency() {
+        return adjacency;
+    }
+
+    /**
+     * Get the source node of the current search.
+     * @return the source node, null if the algorithm has not been initialized.
+     */
+    protected Node getSource() {
+        return source;
+    }
+
+    /**
+     * Get the destination node of the current search.
+     * @return the destination node, null if the search computes the shortest path to all the nodes.
+     */
+    protected Node getTarget() {
+        return target;
     }
 
     @Override
@@ -1,47 +1,202 @@
 package jeanrenaud.nelson.dijkstra;
 
-import java.util.Objects;
-import java.util.PriorityQueue;
+import java.util.Arrays;
 
 /**
  * A priority queue that supports Dijkstra's algorithm.
+ * Indexed binary min-heap of vertex ids with long keys. The position of every vertex in the heap is kept in an array
+ * indexed by vertex id, so a key can be decreased in O(log n) without searching the heap.
  * @author Nelson Jeanrenaud
  * @see Dijkstra
  */
-public class DijkstraPriorityQueue extends PriorityQueue<MarkedNode> {
-    public DijkstraPriorityQueue(int size) {
-        super(size);
+public class DijkstraPriorityQueue implements VertexPriorityQueue {
+    /** Value stored in {@link #positions} for a vertex that is not in the queue. */
+    private static final int ABSENT = -1;
+
+    /** Vertex ids in heap order. */
+    private final int[] heap;
+    /** Key of the vertex at the same position in {@link #heap}. */
+    private final long[] keys;
+    /** Position of each vertex in {@link #heap}, indexed by vertex id. */
+    private final int[] positions;
+    /** Number of vertices in the queue. */
+    private int size;
+
+    /**
+     * Creates an empty queue.
+     * @param capacity number of vertices in the graph, vertex ids must be between 0 and capacity - 1
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public DijkstraPriorityQueue(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity cannot be negative");
+        }
+        this.heap = new int[capacity];
+        this.keys = new long[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(positions, ABSENT);
+        this.size = 0;
+    }
+
+    /**
+     * @return the number of vertices in the queue
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the queue is empty
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param vertex id of the vertex
+     * @return true if this queue contains the specified vertex
+     */
+    @Override
+    public boolean contains(int vertex) {
+        return positions[vertex] != ABSENT;
+    }
+
+    /**
+     * Add a vertex to the queue.
+     * @param vertex id of the vertex
+     * @param key priority of the vertex
+     * @throws IllegalArgumentException if the vertex is already in the queue
+     */
+    @Override
+    public void add(int vertex, long key) {
+        if (contains(vertex)) {
+            throw new IllegalArgumentException("vertex " + vertex + " is already in the queue");
+        }
+        heap[size] = vertex;
+        keys[size] = key;
+        positions[vertex] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Update the priority of the specified vertex, or add it if it is not in the queue yet.
+     * @param vertex id of the vertex
+     * @param key new priority of the vertex
+     */
+    @Override
+    public void update(int vertex, long key) {
+        int position = positions[vertex];
+        if (position == ABSENT) {
+            add(vertex, key);
+            return;
+        }
+        long oldKey = keys[position];
+        keys[position] = key;
+        if (key < oldKey) {
+            siftUp(position);
+        } else if (key > oldKey) {
+            siftDown(position);
+        }
     }
 
     /**
-     * Update the priority of the specified element.
-     * @param element MarkedNode to be updated
+     * @return the smallest key in the queue
+     * @throws IllegalStateException if the queue is empty
      */
-    public void update(MarkedNode element) {
-        Objects.requireNonNull(element, "element cannot be null");
-        remove(element);
-        add(element);
+    @Override
+    public long peekKey() {
+        if (size == 0) {
+            throw new IllegalStateException("the queue is empty");
+        }
+        return keys[0];
     }
 
     /**
-     * @param o object to be checked for containment in this queue
-     * @return true if this queue contains the specified element
+     * Remove the vertex with the smallest key.
+     * @return the id of the removed vertex, or -1 if the queue is empty
      */
     @Override
-    public boolean contains(Object o) {
-        if(o == null)
-            return false;
-        return !((MarkedNode)o).isShortestPathKnown();
+    public int poll() {
+        if (size == 0) {
+            return ABSENT;
+        }
+        int vertex = heap[0];
+        positions[vertex] = ABSENT;
+        if (--size > 0) {
+            move(size, 0);
+            siftDown(0);
+        }
+        return vertex;
     }
 
     /**
-     * @return the smallest node in the queue and mark it as shortest path known
+     * Remove all the vertices from the queue. Runs in time proportional to the number of queued vertices.
      */
     @Override
-    public MarkedNode poll() {
-        MarkedNode element = super.poll();
-        if(element != null)
-            element.shortestPathDiscovered();
-        return element;
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = ABSENT;
+        }
+        size = 0;
+    }
+
+    /**
+     * Move the entry at the given position towards the root until the heap property holds.
+     * @param position position of the entry
+     */
+    private void siftUp(int position) {
+        int vertex = heap[position];
+        long key = keys[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            move(parent, position);
+            position = parent;
+        }
+        place(vertex, key, position);
+    }
+
+    /**
+     * Move the entry at the given position towards the leaves until the heap property holds.
+     * @param position position of the entry
+     */
+    private void siftDown(int position) {
+        int vertex = heap[position];
+        long key = keys[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            move(child, position);
+            position = child;
+        }
+        place(vertex, key, position);
+    }
+
+    /**
+     * Copy the entry at position from to position to.
+     */
+    private void move(int from, int to) {
+        heap[to] = heap[from];
+        keys[to] = keys[from];
+        positions[heap[to]] = to;
+    }
+
+    /**
+     * Store the given entry at the given position.
+     */
+    private void place(int vertex, long key, int position) {
+        heap[position] = vertex;
+        keys[position] = key;
+        positions[vertex] = position;
     }
 }
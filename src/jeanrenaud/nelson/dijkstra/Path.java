@@ -3,123 +3,219 @@ package jeanrenaud.nelson.dijkstra;
 import graph.core.impl.SimpleWeightedEdge;
 import jeanrenaud.nelson.graph.Node;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
 /**
  * Represents a non-cyclic path between two nodes.
+ * The path is immutable and stored in flat arrays: the ids of its nodes and the weight of each edge. Edge objects are
+ * only built when they are requested. A reversed path is a view sharing the arrays of the original path.
  * @author Nelson Jeanrenaud
+ * @see Builder
  */
 public class Path {
+    /** Nodes of the graph, indexed by id, used to build the nodes and edges of the path. */
+    private final List<Node> vertices;
+    /** Ids of the nodes, empty if the path has no edge. */
+    private final int[] nodes;
+    /** Weight of each edge, edge i leads from node i to node i + 1. */
+    private final long[] weights;
+    /** Number of edges. */
+    private final int nbEdges;
+    /** True if the path goes through the arrays backwards. */
+    private final boolean isReversed;
+    /** Sum of the weights of the edges. */
+    private final long totalWeight;
 
     /**
-     * The list of edges that make up the path.
+     * Creates an empty path.
      */
-    private final LinkedList<SimpleWeightedEdge<Node>> edges;
-
     public Path() {
-        edges = new LinkedList<>();
+        this(List.of(), new int[0], new long[0], 0, false, 0);
+    }
+
+    private Path(List<Node> vertices, int[] nodes, long[] weights, int nbEdges, boolean isReversed, long totalWeight) {
+        this.vertices = vertices;
+        this.nodes = nodes;
+        this.weights = weights;
+        this.nbEdges = nbEdges;
+        this.isReversed = isReversed;
+        this.totalWeight = totalWeight;
     }
 
     /**
-     * Creates a new path from the given list of edges.
-     * @param edges the list of edges
-     * @throws NullPointerException if the list of edges is empty
+     * Return a path that is the reverse of this path, without copying it.
+     * @return the reversed path
      */
-    public Path(List<SimpleWeightedEdge<Node>> edges) {
-        Objects.requireNonNull(edges, "The list of edges cannot be null");
-        this.edges = new LinkedList<>(edges);
+    public Path reversed() {
+        return new Path(vertices, nodes, weights, nbEdges, !isReversed, totalWeight);
     }
 
     /**
-     * Adds an edge at the end of the path.
-     * @param edge the edge to add
-     * @throws NullPointerException if the edge is null
+     * Calculates the total weight of the path.
+     * @return the total weight of the path
      */
-    public void push_back(SimpleWeightedEdge<Node> edge) {
-        Objects.requireNonNull(edge, "The edge cannot be null");
-        if (!edges.isEmpty() && edges.getLast().to() != edge.from()) {
-            throw new IllegalArgumentException("The edge does not start from the last node of the path");
-        }
-        edges.addLast(edge);
+    public long totalWeight() {
+        return totalWeight;
     }
 
     /**
-     * Append the given path to the end of this path.
-     * @param path the path to append
-     * @throws NullPointerException if the path is null
+     * @return the number of edges of the path
      */
-    public void push_back(Path path) {
-        Objects.requireNonNull(path, "The path cannot be null");
-        if (!edges.isEmpty() && !path.edges.isEmpty() && edges.getLast().to() != path.edges.getFirst().from()) {
-            throw new IllegalArgumentException("The path does not start from the last node of the path");
-        }
-        edges.addAll(path.edges);
+    public int getNumberOfEdges() {
+        return nbEdges;
     }
 
     /**
-     * Adds an edge at the beginning of the path.
-     * @param edge the edge to add
-     * @throws NullPointerException if the edge is null
+     * Returns the number of nodes in the path.
+     * @return the number of edges plus one
      */
-    public void push_front(SimpleWeightedEdge<Node> edge) {
-        Objects.requireNonNull(edge, "The edge cannot be null");
-        if (!edges.isEmpty() && edges.getFirst().from() != edge.to()) {
-            throw new IllegalArgumentException("The edge does not end at the first node of the path");
+    public long getNumberOfNodes() {
+        return nbEdges + 1;
+    }
+
+    /**
+     * @param index index of a node in the path, from 0 to the number of edges
+     * @return the id of the node
+     * @throws IndexOutOfBoundsException if the path has no edge or the index is out of the path
+     */
+    public int getNodeId(int index) {
+        if (nbEdges == 0 || index < 0 || index > nbEdges) {
+            throw new IndexOutOfBoundsException("Node " + index + " is out of the path");
         }
-        edges.addFirst(edge);
+        return nodes[isReversed ? nbEdges - index : index];
     }
 
     /**
-     * Append the given path to the beginning of this path.
-     * @param path the path to append
-     * @throws NullPointerException if the path is null
+     * @param index index of a node in the path, from 0 to the number of edges
+     * @return the node
+     * @throws IndexOutOfBoundsException if the path has no edge or the index is out of the path
      */
-    public void push_front(Path path) {
-        Objects.requireNonNull(path, "The path cannot be null");
-        if (!edges.isEmpty() && !path.edges.isEmpty() && edges.getFirst().from() != path.edges.getLast().to()) {
-            throw new IllegalArgumentException("The path does not end at the first node of the path");
+    public Node getNode(int index) {
+        return vertices.get(getNodeId(index));
+    }
+
+    /**
+     * @param index index of an edge in the path
+     * @return the weight of the edge
+     * @throws IndexOutOfBoundsException if the index is out of the path
+     */
+    public long getEdgeWeight(int index) {
+        if (index < 0 || index >= nbEdges) {
+            throw new IndexOutOfBoundsException("Edge " + index + " is out of the path");
         }
-        edges.addAll(0, path.edges);
+        return weights[isReversed ? nbEdges - 1 - index : index];
     }
 
     /**
-     * Return a path that is the reverse of this path.
-     * @return the reversed path
+     * Builds an edge of the path.
+     * @param index index of the edge in the path
+     * @return the edge from node index to node index + 1
+     * @throws IndexOutOfBoundsException if the index is out of the path
      */
-    public Path reversed() {
-        Path p = new Path();
-        for (SimpleWeightedEdge<Node> edge : edges)
-            p.push_front(new SimpleWeightedEdge<>(edge.to(), edge.from(), edge.weight()));
-        return p;
+    public SimpleWeightedEdge<Node> getEdge(int index) {
+        long weight = getEdgeWeight(index);
+        return new SimpleWeightedEdge<>(getNode(index), getNode(index + 1), weight);
     }
 
     /**
-     * Calculates the total weight of the path.
-     * @return the total weight of the path
+     * Builds the edges of the path.
+     * @return the edges, in the order of the path
      */
-    public long totalWeight() {
-        return edges.stream().mapToLong(SimpleWeightedEdge::weight).sum();
+    public List<SimpleWeightedEdge<Node>> getEdges() {
+        List<SimpleWeightedEdge<Node>> edges = new ArrayList<>(nbEdges);
+        for (int i = 0; i < nbEdges; i++) {
+            edges.add(getEdge(i));
+        }
+        return edges;
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("[");
-        for (SimpleWeightedEdge<Node> edge : edges) {
-            sb.append(edge.from().id()).append(" -> ");
-            if(edge == edges.getLast())
-                sb.append(edge.to().id());
+        for (int i = 0; i < nbEdges; i++) {
+            sb.append(getNodeId(i)).append(" -> ");
+            if (i == nbEdges - 1)
+                sb.append(getNodeId(nbEdges));
         }
         sb.append("] total cost: ").append(totalWeight());
         return sb.toString();
     }
 
     /**
-     * Returns the list of nodes in the path.
-     * @return the list of nodes
+     * Builds a path by appending edges to its end.
+     * A path built backwards, from its last edge to its first, is appended edge by edge reversed and then
+     * {@link Path#reversed() reversed}, without copying it.
      */
-    public long getNumberOfNodes() {
-        return edges.size() + 1;
+    public static class Builder {
+        /** Initial number of edges of the arrays. */
+        private static final int INITIAL_CAPACITY = 16;
+
+        /** Nodes of the graph, indexed by id. */
+        private final List<Node> vertices;
+        /** Ids of the nodes appended so far. */
+        private int[] nodes;
+        /** Weights of the edges appended so far. */
+        private long[] weights;
+        /** Number of edges appended so far. */
+        private int nbEdges;
+        /** Sum of the weights of the edges appended so far. */
+        private long totalWeight;
+
+        /**
+         * Creates a builder of an empty path.
+         * @param vertices nodes of the graph, indexed by id
+         * @throws NullPointerException if vertices is null
+         */
+        public Builder(List<Node> vertices) {
+            this.vertices = Objects.requireNonNull(vertices, "The vertices cannot be null");
+            this.nodes = new int[INITIAL_CAPACITY + 1];
+            this.weights = new long[INITIAL_CAPACITY];
+        }
+
+        /**
+         * Adds an edge at the end of the path.
+         * @param from id of the origin of the edge
+         * @param to id of the destination of the edge
+         * @param weight weight of the edge
+         * @throws IllegalArgumentException if the edge does not start from the last node of the path
+         */
+        public void append(int from, int to, long weight) {
+            if (nbEdges == 0) {
+                nodes[0] = from;
+            } else if (nodes[nbEdges] != from) {
+                throw new IllegalArgumentException("The edge does not start from the last node of the path");
+            }
+            if (nbEdges == weights.length) {
+                weights = Arrays.copyOf(weights, 2 * nbEdges);
+                nodes = Arrays.copyOf(nodes, 2 * nbEdges + 1);
+            }
+            weights[nbEdges] = weight;
+            nodes[++nbEdges] = to;
+            totalWeight += weight;
+        }
+
+        /**
+         * Append the given path to the end of the path.
+         * @param path the path to append
+         * @throws NullPointerException if the path is null
+         * @throws IllegalArgumentException if the path does not start from the last node of the path
+         */
+        public void append(Path path) {
+            Objects.requireNonNull(path, "The path cannot be null");
+            for (int i = 0; i < path.nbEdges; i++) {
+                append(path.getNodeId(i), path.getNodeId(i + 1), path.getEdgeWeight(i));
+            }
+        }
+
+        /**
+         * Builds the path, the builder must not be used afterwards.
+         * @return the path
+         */
+        public Path build() {
+            return new Path(vertices, nodes, weights, nbEdges, false, totalWeight);
+        }
     }
 }
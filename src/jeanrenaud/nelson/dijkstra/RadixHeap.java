@@ -0,0 +1,191 @@
+package jeanrenaud.nelson.dijkstra;
+
+import java.util.Arrays;
+
+/**
+ * Monotone radix heap of vertex ids with non-negative long keys.
+ * Every key must be at least the last key removed, which holds for Dijkstra with non-negative edge weights and
+ * consistent potentials. A vertex is stored in the bucket given by the highest bit in which its key differs from the
+ * last key removed, bucket 0 holding the keys equal to it. When bucket 0 is empty the smallest key of the first
+ * non-empty bucket becomes the last key and the bucket is split into lower buckets, so every vertex moves down at
+ * most 64 times. Buckets are doubly linked lists threaded through arrays indexed by vertex id, a key is updated in
+ * constant time.
+ * @author Nelson Jeanrenaud
+ * @see Dijkstra
+ */
+public class RadixHeap implements VertexPriorityQueue {
+    /** Number of buckets: one for the last key and one per bit of a key. */
+    private static final int NB_BUCKETS = Long.SIZE + 1;
+    /** Value stored in {@link #buckets} for a vertex that is not in the queue, and end of a list. */
+    private static final int ABSENT = -1;
+
+    /** First vertex of each bucket. */
+    private final int[] heads;
+    /** Next and previous vertex in the bucket of each vertex. */
+    private final int[] next;
+    private final int[] previous;
+    /** Bucket of each vertex, {@link #ABSENT} if it is not in the queue. */
+    private final int[] buckets;
+    /** Key of each queued vertex. */
+    private final long[] keys;
+    /** Last key removed, or smallest key once bucket 0 has been refilled. */
+    private long last;
+    /** Number of vertices in the queue. */
+    private int size;
+
+    /**
+     * Creates an empty queue.
+     * @param capacity number of vertices in the graph, vertex ids must be between 0 and capacity - 1
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public RadixHeap(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity cannot be negative");
+        }
+        this.heads = new int[NB_BUCKETS];
+        Arrays.fill(heads, ABSENT);
+        this.next = new int[capacity];
+        this.previous = new int[capacity];
+        this.buckets = new int[capacity];
+        Arrays.fill(buckets, ABSENT);
+        this.keys = new long[capacity];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(int vertex) {
+        return buckets[vertex] != ABSENT;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalArgumentException if the key is smaller than the last key removed
+     */
+    @Override
+    public void add(int vertex, long key) {
+        if (contains(vertex)) {
+            throw new IllegalArgumentException("vertex " + vertex + " is already in the queue");
+        }
+        checkKey(key);
+        keys[vertex] = key;
+        link(vertex, bucket(key));
+        size++;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalArgumentException if the key is smaller than the last key removed
+     */
+    @Override
+    public void update(int vertex, long key) {
+        if (!contains(vertex)) {
+            add(vertex, key);
+            return;
+        }
+        checkKey(key);
+        keys[vertex] = key;
+        int bucket = bucket(key);
+        if (bucket != buckets[vertex]) {
+            unlink(vertex);
+            link(vertex, bucket);
+        }
+    }
+
+    @Override
+    public long peekKey() {
+        if (size == 0) {
+            throw new IllegalStateException("the queue is empty");
+        }
+        refill();
+        return last;
+    }
+
+    @Override
+    public int poll() {
+        if (size == 0) {
+            return ABSENT;
+        }
+        refill();
+        int vertex = heads[0];
+        unlink(vertex);
+        buckets[vertex] = ABSENT;
+        size--;
+        return vertex;
+    }
+
+    /**
+     * Remove all the vertices from the queue. Runs in time proportional to the number of queued vertices.
+     */
+    @Override
+    public void clear() {
+        for (int bucket = 0; bucket < NB_BUCKETS; bucket++) {
+            for (int vertex = heads[bucket]; vertex != ABSENT; vertex = next[vertex]) {
+                buckets[vertex] = ABSENT;
+            }
+            heads[bucket] = ABSENT;
+        }
+        last = 0;
+        size = 0;
+    }
+
+    /**
+     * Make the smallest key the last key, so that bucket 0 holds the vertices with the smallest key.
+     */
+    private void refill() {
+        if (heads[0] != ABSENT) {
+            return;
+        }
+        int bucket = 1;
+        while (heads[bucket] == ABSENT) {
+            bucket++;
+        }
+        long min = Long.MAX_VALUE;
+        for (int vertex = heads[bucket]; vertex != ABSENT; vertex = next[vertex]) {
+            min = Math.min(min, keys[vertex]);
+        }
+        last = min;
+        // Every key of the bucket now differs from the last key in a lower bit
+        int vertex = heads[bucket];
+        heads[bucket] = ABSENT;
+        while (vertex != ABSENT) {
+            int following = next[vertex];
+            link(vertex, bucket(keys[vertex]));
+            vertex = following;
+        }
+    }
+
+    private void checkKey(long key) {
+        if (key < last) {
+            throw new IllegalArgumentException("key " + key + " is smaller than the last key removed " + last);
+        }
+    }
+
+    private int bucket(long key) {
+        return key == last ? 0 : Long.SIZE - Long.numberOfLeadingZeros(key ^ last);
+    }
+
+    private void link(int vertex, int bucket) {
+        buckets[vertex] = bucket;
+        previous[vertex] = ABSENT;
+        next[vertex] = heads[bucket];
+        if (heads[bucket] != ABSENT) {
+            previous[heads[bucket]] = vertex;
+        }
+        heads[bucket] = vertex;
+    }
+
+    private void unlink(int vertex) {
+        if (previous[vertex] != ABSENT) {
+            next[previous[vertex]] = next[vertex];
+        } else {
+            heads[buckets[vertex]] = next[vertex];
+        }
+        if (next[vertex] != ABSENT) {
+            previous[next[vertex]] = previous[vertex];
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package jeanrenaud.nelson.dijkstra;
+
+import java.util.Arrays;
+
+/**
+ * Labels of the nodes reused from one search to the next, stored in parallel primitive arrays indexed by node id:
+ * distance from the origin, previous node, index of the previous edge and a bitset of the settled nodes.
+ * Every label is stamped with the search (epoch) that last wrote it, a label with an older stamp is treated as
+ * unreached. Starting a new search is therefore O(1) and a search only touches the nodes it labels.
+ * @author Nelson Jeanrenaud
+ * @see Dijkstra
+ */
+public class SearchWorkspace {
+    /** Distance of a node that has not been reached. */
+    public static final long UNREACHED = Long.MAX_VALUE;
+
+    /** Distance of each node from the origin of the search. */
+    private final long[] distances;
+    /** Previous node of each node on its shortest path, -1 for the origin. */
+    private final int[] parents;
+    /** Index of the previous edge of each node in the adjacency, -1 for the origin. */
+    private final int[] parentEdges;
+    /** Settled nodes, a bit is only meaningful if the node is stamped with the current epoch. */
+    private final long[] settled;
+    /** Epoch in which each label was last written. */
+    private final int[] stamps;
+    /** Epoch of the current search. */
+    private int epoch;
+
+    /**
+     * Creates a workspace.
+     * @param size number of nodes of the graph.
+     * @throws IllegalArgumentException if size is negative.
+     */
+    public SearchWorkspace(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size cannot be negative");
+        }
+        this.distances = new long[size];
+        this.parents = new int[size];
+        this.parentEdges = new int[size];
+        this.settled = new long[(size + Long.SIZE - 1) / Long.SIZE];
+        this.stamps = new int[size];
+        this.epoch = 0;
+    }
+
+    /**
+     * @return the number of nodes in the workspace.
+     */
+    public int size() {
+        return distances.length;
+    }
+
+    /**
+     * Start a new search, every node becomes unreached.
+     */
+    public void reset() {
+        if (++epoch == Integer.MAX_VALUE) {
+            // Stamps could collide with a future epoch, clear them once every 2^31 searches.
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+    }
+
+    /**
+     * @param id id of the node.
+     * @return true if the node has been labelled during the current search.
+     */
+    public boolean isReached(int id) {
+        return stamps[id] == epoch;
+    }
+
+    /**
+     * @param id id of the node.
+     * @return true if the shortest path to the node is known in the current search.
+     */
+    public boolean isSettled(int id) {
+        return stamps[id] == epoch && (settled[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * @param id id of the node.
+     * @return the distance of the node, {@link #UNREACHED} if it has not been reached.
+     */
+    public long getDistance(int id) {
+        return stamps[id] == epoch ? distances[id] : UNREACHED;
+    }
+
+    /**
+     * @param id id of a reached node.
+     * @return the previous node, -1 for the origin.
+     */
+    public int getParent(int id) {
+        return parents[id];
+    }
+
+    /**
+     * @param id id of a reached node.
+     * @return the index of the previous edge in the adjacency, -1 for the origin.
+     */
+    public int getParentEdge(int id) {
+        return parentEdges[id];
+    }
+
+    /**
+     * Set the label of a node in the current search.
+     * @param id id of the node.
+     * @param distance distance from the origin.
+     * @param parent previous node, -1 for the origin.
+     * @param parentEdge index of the previous edge in the adjacency, -1 for the origin.
+     */
+    public void label(int id, long distance, int parent, int parentEdge) {
+        if (stamps[id] != epoch) {
+            stamps[id] = epoch;
+            settled[id >>> 6] &= ~(1L << id);
+        }
+        distances[id] = distance;
+        parents[id] = parent;
+        parentEdges[id] = parentEdge;
+    }
+
+    /**
+     * Mark a reached node as settled: its distance is the shortest one.
+     * @param id id of the node.
+     */
+    public void settle(int id) {
+        settled[id >>> 6] |= 1L << id;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int id = 0; id < distances.length; id++) {
+            if (isReached(id)) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(id).append(": (").append(distances[id]).append(", ")
+                        .append(parents[id] < 0 ? null : parents[id]).append(")").append(isSettled(id) ? "*" : "");
+            }
+        }
+        return sb.append("]").toString();
+    }
+}
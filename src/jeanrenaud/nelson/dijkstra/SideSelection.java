@@ -0,0 +1,17 @@
+package jeanrenaud.nelson.dijkstra;
+
+/**
+ * Strategies used by a bidirectional search to choose the direction of the next iteration.
+ * @author Nelson Jeanrenaud
+ * @see BidirectionalDijkstra
+ */
+public enum SideSelection {
+    /**
+     * The search whose queue has the smallest key settles the next node, both searches grow at the same speed.
+     */
+    SMALLEST_KEY,
+    /**
+     * The search whose queue holds the fewest nodes settles the next node, which balances the work of the searches.
+     */
+    SMALLEST_QUEUE
+}
@@ -0,0 +1,61 @@
+package jeanrenaud.nelson.dijkstra;
+
+/**
+ * Priority queue of vertex ids with long keys, as used by {@link Dijkstra}.
+ * A vertex is at most once in the queue, updating its key replaces the previous one.
+ * @author Nelson Jeanrenaud
+ * @see DijkstraPriorityQueue
+ * @see RadixHeap
+ * @see DialQueue
+ */
+public interface VertexPriorityQueue {
+    /**
+     * @return the number of vertices in the queue
+     */
+    int size();
+
+    /**
+     * @return true if the queue is empty
+     */
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @param vertex id of the vertex
+     * @return true if this queue contains the specified vertex
+     */
+    boolean contains(int vertex);
+
+    /**
+     * Add a vertex to the queue.
+     * @param vertex id of the vertex
+     * @param key priority of the vertex
+     * @throws IllegalArgumentException if the vertex is already in the queue
+     */
+    void add(int vertex, long key);
+
+    /**
+     * Update the priority of the specified vertex, or add it if it is not in the queue yet.
+     * @param vertex id of the vertex
+     * @param key new priority of the vertex
+     */
+    void update(int vertex, long key);
+
+    /**
+     * @return the smallest key in the queue
+     * @throws IllegalStateException if the queue is empty
+     */
+    long peekKey();
+
+    /**
+     * Remove the vertex with the smallest key.
+     * @return the id of the removed vertex, or -1 if the queue is empty
+     */
+    int poll();
+
+    /**
+     * Remove all the vertices from the queue.
+     */
+    void clear();
+}
@@ -0,0 +1,163 @@
+package jeanrenaud.nelson.graph;
+
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Partition of the nodes of a graph into 2^depth regions of nearly equal size by recursive median splits of their
+ * coordinates, each set being split along the axis on which its nodes are the most spread.
+ * The regions are nested: the region of a node at a coarser level is a prefix of the bits of its region, so the
+ * region at level l is the region at the last level shifted right by depth - l.
+ * @author Nelson Jeanrenaud
+ * @see KdTree
+ */
+public class KdPartition {
+    /** Largest number of splits. */
+    public static final int MAX_DEPTH = 16;
+
+    /** Number of splits from the whole graph to a region. */
+    private final int depth;
+    /** Region of each node at the last level. */
+    private final int[] regions;
+    /** Coordinates of each node. */
+    private final int[] xs;
+    private final int[] ys;
+
+    /**
+     * Partition the nodes of a graph.
+     * @param graph the graph.
+     * @param depth number of splits, the partition has 2^depth regions.
+     * @throws NullPointerException if the graph is null.
+     * @throws IllegalArgumentException if the depth is not between 0 and {@link #MAX_DEPTH}.
+     */
+    public KdPartition(Digraph<Node, SimpleWeightedEdge<Node>> graph, int depth) {
+        this(Objects.requireNonNull(graph, "The graph cannot be null.").getVertices(), depth);
+    }
+
+    /**
+     * Partition nodes whose ids are their index in the list.
+     * @param nodes the nodes.
+     * @param depth number of splits, the partition has 2^depth regions.
+     * @throws NullPointerException if the list is null or contains null.
+     * @throws IllegalArgumentException if the depth is not between 0 and {@link #MAX_DEPTH}.
+     */
+    public KdPartition(List<Node> nodes, int depth) {
+        Objects.requireNonNull(nodes, "The nodes cannot be null.");
+        if (depth < 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("The depth must be between 0 and " + MAX_DEPTH);
+        }
+        this.depth = depth;
+        this.regions = new int[nodes.size()];
+        this.xs = new int[nodes.size()];
+        this.ys = new int[nodes.size()];
+        int[] ids = new int[nodes.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Node node = Objects.requireNonNull(nodes.get(i), "The nodes cannot contain null.");
+            ids[i] = i;
+            xs[i] = node.getX();
+            ys[i] = node.getY();
+        }
+        split(ids, 0, ids.length, 0, 0);
+    }
+
+    /**
+     * @return the number of splits from the whole graph to a region.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the number of regions at the last level.
+     */
+    public int getNbRegions() {
+        return 1 << depth;
+    }
+
+    /**
+     * @return the number of nodes.
+     */
+    public int size() {
+        return regions.length;
+    }
+
+    /**
+     * @param id id of a node.
+     * @return the region of the node at the last level.
+     */
+    public int getRegion(int id) {
+        return regions[id];
+    }
+
+    /**
+     * @param id id of a node.
+     * @param level level of the partition, from 0 (a single region) to the depth.
+     * @return the region of the node at the level, between 0 and 2^level - 1.
+     * @throws IllegalArgumentException if the level is not between 0 and the depth.
+     */
+    public int getRegion(int id, int level) {
+        if (level < 0 || level > depth) {
+            throw new IllegalArgumentException("The level must be between 0 and " + depth);
+        }
+        return regions[id] >>> (depth - level);
+    }
+
+    /**
+     * Assign the nodes of a range to the regions with the given prefix.
+     * @param ids ids of the nodes, reordered by the splits.
+     * @param begin first index of the range.
+     * @param end index following the range.
+     * @param level number of splits done.
+     * @param prefix region of the range at the current level.
+     */
+    private void split(int[] ids, int begin, int end, int level, int prefix) {
+        if (level == depth) {
+            for (int i = begin; i < end; i++) {
+                regions[ids[i]] = prefix;
+            }
+            return;
+        }
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = begin; i < end; i++) {
+            minX = Math.min(minX, xs[ids[i]]);
+            maxX = Math.max(maxX, xs[ids[i]]);
+            minY = Math.min(minY, ys[ids[i]]);
+            maxY = Math.max(maxY, ys[ids[i]]);
+        }
+        int[] coordinates = (long) maxX - minX >= (long) maxY - minY ? xs : ys;
+        int median = (begin + end) >>> 1;
+        select(ids, begin, end, median, coordinates);
+        split(ids, begin, median, level + 1, prefix << 1);
+        split(ids, median, end, level + 1, prefix << 1 | 1);
+    }
+
+    /**
+     * Move the node of the given rank along an axis to its index, smaller nodes before it and larger after it.
+     */
+    private static void select(int[] ids, int begin, int end, int rank, int[] coordinates) {
+        int low = begin, high = end - 1;
+        while (low < high) {
+            int pivot = coordinates[ids[(low + high) >>> 1]];
+            int i = low, j = high;
+            while (i <= j) {
+                while (coordinates[ids[i]] < pivot) i++;
+                while (coordinates[ids[j]] > pivot) j--;
+                if (i <= j) {
+                    int swap = ids[i];
+                    ids[i++] = ids[j];
+                    ids[j--] = swap;
+                }
+            }
+            if (rank <= j) {
+                high = j;
+            } else if (rank >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package jeanrenaud.nelson.graph;
+
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Static 2-d tree over the coordinates of the nodes of a graph, used to snap raw coordinates to nodes.
+ * The tree is implicit: the nodes are stored in flat arrays where the median of every range is the root of the
+ * subtree of the range, the nodes before it are on its left and the nodes after it on its right. Each range is split
+ * along the axis on which its nodes are the most spread.
+ * Distances are euclidean, ties between nodes at the same distance are broken arbitrarily.
+ * @author Nelson Jeanrenaud
+ */
+public class KdTree {
+    /** Nodes in tree order. */
+    private final Node[] nodes;
+    /** Coordinates of the nodes in tree order. */
+    private final int[] xs;
+    private final int[] ys;
+    /** True if the range whose median is at the index is split along the X axis. */
+    private final boolean[] splitsOnX;
+
+    /**
+     * Build the tree of the nodes of a graph.
+     * @param graph the graph.
+     * @throws NullPointerException if the graph is null.
+     */
+    public KdTree(Digraph<Node, SimpleWeightedEdge<Node>> graph) {
+        this(Objects.requireNonNull(graph, "The graph cannot be null.").getVertices());
+    }
+
+    /**
+     * Build the tree of some nodes.
+     * @param nodes the nodes.
+     * @throws NullPointerException if the list is null or contains null.
+     */
+    public KdTree(List<Node> nodes) {
+        Objects.requireNonNull(nodes, "The nodes cannot be null.");
+        this.nodes = nodes.toArray(new Node[0]);
+        for (Node node : this.nodes) {
+            Objects.requireNonNull(node, "The nodes cannot contain null.");
+        }
+        this.xs = new int[this.nodes.length];
+        this.ys = new int[this.nodes.length];
+        this.splitsOnX = new boolean[this.nodes.length];
+        build(0, this.nodes.length);
+        for (int i = 0; i < this.nodes.length; i++) {
+            xs[i] = this.nodes[i].getX();
+            ys[i] = this.nodes[i].getY();
+        }
+    }
+
+    /**
+     * @return the number of nodes in the tree.
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Find the node closest to a point.
+     * @param x X coordinate of the point.
+     * @param y Y coordinate of the point.
+     * @return the closest node, null if the tree is empty.
+     */
+    public Node nearest(int x, int y) {
+        List<Node> nearest = kNearest(x, y, 1);
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+
+    /**
+     * Find the k nodes closest to a point.
+     * @param x X coordinate of the point.
+     * @param y Y coordinate of the point.
+     * @param k number of nodes.
+     * @return the min(k, size) closest nodes, from the closest to the farthest.
+     * @throws IllegalArgumentException if k is negative.
+     */
+    public List<Node> kNearest(int x, int y, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        NearestHeap heap = new NearestHeap(Math.min(k, nodes.length));
+        if (heap.capacity > 0) {
+            kNearest(0, nodes.length, x, y, heap);
+        }
+        return heap.toSortedList();
+    }
+
+    /**
+     * Find the nodes within a distance of a point.
+     * @param x X coordinate of the point.
+     * @param y Y coordinate of the point.
+     * @param radius largest distance, inclusive.
+     * @return the nodes within the distance, in no particular order.
+     * @throws IllegalArgumentException if the radius is negative.
+     */
+    public List<Node> withinRadius(int x, int y, double radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("The radius cannot be negative");
+        }
+        List<Node> result = new ArrayList<>();
+        withinRadius(0, nodes.length, x, y, radius * radius, result);
+        return result;
+    }
+
+    /**
+     * Arrange the nodes of a range so that its median is the root of its subtree.
+     * @param begin first index of the range.
+     * @param end index following the range.
+     */
+    private void build(int begin, int end) {
+        if (end - begin <= 0) {
+            return;
+        }
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = begin; i < end; i++) {
+            minX = Math.min(minX, nodes[i].getX());
+            maxX = Math.max(maxX, nodes[i].getX());
+            minY = Math.min(minY, nodes[i].getY());
+            maxY = Math.max(maxY, nodes[i].getY());
+        }
+        boolean onX = (long) maxX - minX >= (long) maxY - minY;
+        int median = (begin + end) >>> 1;
+        select(begin, end, median, onX);
+        splitsOnX[median] = onX;
+        build(begin, median);
+        build(median + 1, end);
+    }
+
+    /**
+     * Move the node of the given rank along an axis to its index, smaller nodes before it and larger after it.
+     * @param begin first index of the range.
+     * @param end index following the range.
+     * @param rank index of the node to place.
+     * @param onX true to compare the X coordinates.
+     */
+    private void select(int begin, int end, int rank, boolean onX) {
+        int low = begin, high = end - 1;
+        while (low < high) {
+            int pivot = coordinate(nodes[(low + high) >>> 1], onX);
+            int i = low, j = high;
+            while (i <= j) {
+                while (coordinate(nodes[i], onX) < pivot) i++;
+                while (coordinate(nodes[j], onX) > pivot) j--;
+                if (i <= j) {
+                    Node swap = nodes[i];
+                    nodes[i++] = nodes[j];
+                    nodes[j--] = swap;
+                }
+            }
+            if (rank <= j) {
+                high = j;
+            } else if (rank >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static int coordinate(Node node, boolean onX) {
+        return onX ? node.getX() : node.getY();
+    }
+
+    /**
+     * Search the k closest nodes in a subtree.
+     */
+    private void kNearest(int begin, int end, int x, int y, NearestHeap heap) {
+        if (begin >= end) {
+            return;
+        }
+        int median = (begin + end) >>> 1;
+        heap.offer(median, squaredDistance(median, x, y));
+        long offset = splitsOnX[median] ? (long) x - xs[median] : (long) y - ys[median];
+        // Visit the side of the point first, the other side only if it may hold a closer node
+        if (offset < 0) {
+            kNearest(begin, median, x, y, heap);
+            if (!heap.isFull() || offset * offset < heap.worstDistance()) {
+                kNearest(median + 1, end, x, y, heap);
+            }
+        } else {
+            kNearest(median + 1, end, x, y, heap);
+            if (!heap.isFull() || offset * offset < heap.worstDistance()) {
+                kNearest(begin, median, x, y, heap);
+            }
+        }
+    }
+
+    /**
+     * Collect the nodes of a subtree within a squared distance.
+     */
+    private void withinRadius(int begin, int end, int x, int y, double squaredRadius, List<Node> result) {
+        if (begin >= end) {
+            return;
+        }
+        int median = (begin + end) >>> 1;
+        if (squaredDistance(median, x, y) <= squaredRadius) {
+            result.add(nodes[median]);
+        }
+        long offset = splitsOnX[median] ? (long) x - xs[median] : (long) y - ys[median];
+        if (offset <= 0 || (double) offset * offset <= squaredRadius) {
+            withinRadius(begin, median, x, y, squaredRadius, result);
+        }
+        if (offset >= 0 || (double) offset * offset <= squaredRadius) {
+            withinRadius(median + 1, end, x, y, squaredRadius, result);
+        }
+    }
+
+    private long squaredDistance(int index, int x, int y) {
+        long dx = (long) x - xs[index];
+        long dy = (long) y - ys[index];
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Bounded max-heap of the closest nodes found so far, by squared distance.
+     */
+    private class NearestHeap {
+        private final int capacity;
+        private final int[] indices;
+        private final long[] distances;
+        private int size;
+
+        private NearestHeap(int capacity) {
+            this.capacity = capacity;
+            this.indices = new int[capacity];
+            this.distances = new long[capacity];
+        }
+
+        private boolean isFull() {
+            return size == capacity;
+        }
+
+        private long worstDistance() {
+            return distances[0];
+        }
+
+        /**
+         * Keep a node if the heap is not full or if it is closer than the farthest node kept.
+         */
+        private void offer(int index, long distance) {
+            if (size < capacity) {
+                int i = size++;
+                while (i > 0 && distances[(i - 1) / 2] < distance) {
+                    indices[i] = indices[(i - 1) / 2];
+                    distances[i] = distances[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                indices[i] = index;
+                distances[i] = distance;
+            } else if (distance < distances[0]) {
+                int i = 0;
+                while (2 * i + 1 < size) {
+                    int child = 2 * i + 1;
+                    if (child + 1 < size && distances[child + 1] > distances[child]) {
+                        child++;
+                    }
+                    if (distances[child] <= distance) {
+                        break;
+                    }
+                    indices[i] = indices[child];
+                    distances[i] = distances[child];
+                    i = child;
+                }
+                indices[i] = index;
+                distances[i] = distance;
+            }
+        }
+
+        /**
+         * @return the nodes kept, from the closest to the farthest.
+         */
+        private List<Node> toSortedList() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(distances[a], distances[b]));
+            List<Node> result = new ArrayList<>(size);
+            for (int i : order) {
+                result.add(nodes[indices[i]]);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package jeanrenaud.nelson.hl;
+
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.dijkstra.Path;
+import jeanrenaud.nelson.dijkstra.ShortestPathAlgorithm;
+import jeanrenaud.nelson.graph.Node;
+
+import java.util.Objects;
+
+/**
+ * Shortest distance query on hub labels.
+ * The distance is a merge of the out label of the source and the in label of the target. The labels do not hold the
+ * paths, the path is only searched by another algorithm when it is requested.
+ * @author Nelson Jeanrenaud
+ * @see HubLabels
+ */
+public class HubLabelQuery implements ShortestPathAlgorithm {
+    /** Graph of the labels. */
+    private final Digraph<Node, SimpleWeightedEdge<Node>> graph;
+    /** Labels of the graph. */
+    private final HubLabels labels;
+    /** Algorithm searching the paths. */
+    private final ShortestPathAlgorithm pathAlgorithm;
+    /** Source and target of the last query. */
+    private Node source;
+    private Node target;
+    /** Distance found by the last query. */
+    private long distance;
+    /** Number of label entries of the last query. */
+    private long iteration;
+
+    /**
+     * Create a query. Distances alone are answered by {@link HubLabels#distance(int, int)}, without a query.
+     * @param graph the graph.
+     * @param labels the labels of the graph.
+     * @param pathAlgorithm algorithm on the same graph searching the paths when they are requested.
+     * @throws NullPointerException if an argument is null.
+     * @throws IllegalArgumentException if the labels were computed for another number of nodes, or the path
+     * algorithm uses another graph.
+     */
+    public HubLabelQuery(Digraph<Node, SimpleWeightedEdge<Node>> graph, HubLabels labels,
+                         ShortestPathAlgorithm pathAlgorithm) {
+        Objects.requireNonNull(graph, "Graph cannot be null");
+        Objects.requireNonNull(labels, "Labels cannot be null");
+        Objects.requireNonNull(pathAlgorithm, "Path algorithm cannot be null");
+        if (labels.getNbVertices() != graph.getNVertices()) {
+            throw new IllegalArgumentException("The labels were computed for another graph");
+        }
+        if (pathAlgorithm.getGraph() != graph) {
+            throw new IllegalArgumentException("The path algorithm uses another graph");
+        }
+        this.graph = graph;
+        this.labels = labels;
+        this.pathAlgorithm = pathAlgorithm;
+    }
+
+    @Override
+    public Digraph<Node, SimpleWeightedEdge<Node>> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Calculate the shortest distance from the source to the target.
+     * @param source the source node.
+     * @param target the target node.
+     * @throws NullPointerException if the source or target node is null.
+     * @throws IllegalArgumentException if the source or target node is not in the graph.
+     */
+    @Override
+    public void run(Node source, Node target) {
+        Objects.requireNonNull(source, "The source node cannot be null.");
+        Objects.requireNonNull(target, "The target node cannot be null.");
+        if (!isInGraph(source) || !isInGraph(target)) {
+            throw new IllegalArgumentException("Source or target node is not in the graph");
+        }
+        this.source = source;
+        this.target = target;
+        this.distance = labels.distance(source.id(), target.id());
+        this.iteration = labels.getLabelSizes(source.id(), target.id());
+    }
+
+    /**
+     * Get the shortest distance found by the last query.
+     * @return the distance, {@link HubLabels#UNREACHED} if the target can't be reached.
+     * @throws IllegalStateException if no query has been run.
+     */
+    public long getDistance() {
+        if (source == null) {
+            throw new IllegalStateException("The algorithm has not been initialized.");
+        }
+        return distance;
+    }
+
+    /**
+     * Search the shortest path of the last query with the path algorithm.
+     * @return the shortest path, or null if the target can't be reached.
+     * @throws IllegalStateException if no query has been run.
+     */
+    @Override
+    public Path getShortestPath() {
+        if (getDistance() == HubLabels.UNREACHED) {
+            return null;
+        }
+        pathAlgorithm.run(source, target);
+        return pathAlgorithm.getShortestPath();
+    }
+
+    /**
+     * @return the number of label entries of the last query.
+     */
+    @Override
+    public long getIteration() {
+        return iteration;
+    }
+
+    @Override
+    public String getName() {
+        return "Hub Labels";
+    }
+
+    /**
+     * Check that a node belongs to the graph by looking it up by id.
+     * @param node Node to check.
+     * @return true if the node is the vertex of the graph with the same id.
+     */
+    private boolean isInGraph(Node node) {
+        return node.id() >= 0 && node.id() < graph.getNVertices() && graph.getVertices().get(node.id()) == node;
+    }
+}
@@ -0,0 +1,462 @@
+package jeanrenaud.nelson.hl;
+
+import graph.core.impl.CompactAdjacency;
+import graph.core.impl.Digraph;
+import graph.core.impl.SimpleWeightedEdge;
+import jeanrenaud.nelson.ch.ContractionHierarchy;
+import jeanrenaud.nelson.dijkstra.DijkstraPriorityQueue;
+import jeanrenaud.nelson.dijkstra.SearchWorkspace;
+import jeanrenaud.nelson.graph.Node;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Hub labels of a graph: every node stores the distances to the hubs of its out label and from the hubs of its in
+ * label, so that the shortest path from s to t goes through a hub of both the out label of s and the in label of t.
+ * The labels are computed by pruned landmark labeling: a pruned Dijkstra search forward and backward from every node,
+ * the most important first, skipping the nodes whose distance is already given by the labels. Hubs are identified by
+ * their position in the order of importance, so a label is naturally sorted and a query is a merge of two sorted
+ * lists. The labels of all the nodes are stored in flat arrays.
+ * @author Nelson Jeanrenaud
+ * @see HubLabelQuery
+ */
+public class HubLabels {
+    /** Distance of a node that can't be reached. */
+    public static final long UNREACHED = SearchWorkspace.UNREACHED;
+    /** First value of a hub labels file. */
+    private static final int FILE_MAGIC = 0x48554231;
+
+    /** Node of each position in the order of importance, the most important first. */
+    private final int[] order;
+    /** First entry of the out label of each node followed by the number of entries. */
+    private final int[] outOffsets;
+    /** Hub of each entry of the out labels, increasing within a label. */
+    private final int[] outHubs;
+    /** Distance from the node to the hub of each entry of the out labels. */
+    private final long[] outDistances;
+    /** First entry of the in label of each node followed by the number of entries. */
+    private final int[] inOffsets;
+    /** Hub of each entry of the in labels, increasing within a label. */
+    private final int[] inHubs;
+    /** Distance from the hub to the node of each entry of the in labels. */
+    private final long[] inDistances;
+
+    private HubLabels(int[] order, int[] outOffsets, int[] outHubs, long[] outDistances,
+                      int[] inOffsets, int[] inHubs, long[] inDistances) {
+        this.order = order;
+        this.outOffsets = outOffsets;
+        this.outHubs = outHubs;
+        this.outDistances = outDistances;
+        this.inOffsets = inOffsets;
+        this.inHubs = inHubs;
+        this.inDistances = inDistances;
+    }
+
+    /**
+     * Compute the labels of a graph in the order of a contraction hierarchy, the node contracted last first.
+     * @param hierarchy the contraction hierarchy of the graph.
+     * @return the labels.
+     * @throws NullPointerException if the hierarchy is null.
+     */
+    public static HubLabels build(ContractionHierarchy hierarchy) {
+        Objects.requireNonNull(hierarchy, "The hierarchy cannot be null.");
+        int nbVertices = hierarchy.getGraph().getNVertices();
+        int[] order = new int[nbVertices];
+        for (int v = 0; v < nbVertices; v++) {
+            order[nbVertices - 1 - hierarchy.getRank(v)] = v;
+        }
+        return build(hierarchy.getGraph(), order);
+    }
+
+    /**
+     * Compute the labels of a graph.
+     * @param graph the graph.
+     * @param order id of the nodes in order of importance, the most important first. The labels are the smallest
+     *              when the nodes covering the most shortest paths come first.
+     * @return the labels.
+     * @throws NullPointerException if an argument is null.
+     * @throws IllegalArgumentException if the order is not a permutation of the nodes of the graph.
+     */
+    public static HubLabels build(Digraph<Node, SimpleWeightedEdge<Node>> graph, int[] order) {
+        Objects.requireNonNull(graph, "The graph cannot be null.");
+        Objects.requireNonNull(order, "The order cannot be null.");
+        int nbVertices = graph.getNVertices();
+        checkOrder(order, nbVertices);
+        LabelSet out = new LabelSet(nbVertices);
+        LabelSet in = new LabelSet(nbVertices);
+        PrunedSearch forward = new PrunedSearch(graph.getCompactAdjacency(SimpleWeightedEdge.WEIGHER));
+        PrunedSearch backward = new PrunedSearch(graph.getPredecessorAdjacency(SimpleWeightedEdge.WEIGHER));
+        for (int hub = 0; hub < nbVertices; hub++) {
+            // Distances from the hub fill the in labels, distances to the hub the out labels
+            forward.run(order[hub], hub, out, in);
+            backward.run(order[hub], hub, in, out);
+        }
+        return new HubLabels(order.clone(), out.offsets(), out.hubs(), out.distances(),
+                in.offsets(), in.hubs(), in.distances());
+    }
+
+    /**
+     * Load labels saved with {@link #save(String)}.
+     * @param filename the file.
+     * @return the labels.
+     * @throws IOException if a read error occurred.
+     * @throws IllegalArgumentException if the file is not a hub labels file.
+     */
+    public static HubLabels load(String filename) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IllegalArgumentException("Not a hub labels file");
+            }
+            int nbVertices = in.readInt();
+            int nbOut = in.readInt();
+            int nbIn = in.readInt();
+            if (nbVertices < 0 || nbOut < 0 || nbIn < 0) {
+                throw new IllegalArgumentException("Invalid hub labels file header");
+            }
+            int[] order = new int[nbVertices];
+            for (int i = 0; i < nbVertices; i++) {
+                order[i] = in.readInt();
+            }
+            checkOrder(order, nbVertices);
+            int[] outOffsets = new int[nbVertices + 1];
+            int[] outHubs = new int[nbOut];
+            long[] outDistances = new long[nbOut];
+            readLabels(in, outOffsets, outHubs, outDistances);
+            int[] inOffsets = new int[nbVertices + 1];
+            int[] inHubs = new int[nbIn];
+            long[] inDistances = new long[nbIn];
+            readLabels(in, inOffsets, inHubs, inDistances);
+            return new HubLabels(order, outOffsets, outHubs, outDistances, inOffsets, inHubs, inDistances);
+        }
+    }
+
+    /**
+     * Save the labels. The entries are variable-length encoded: the size of each label, then the difference between
+     * each hub and the previous one of the label and the distance of the entry.
+     * @param filename the file.
+     * @throws IOException if a write error occurred.
+     */
+    public void save(String filename) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(order.length);
+            out.writeInt(outHubs.length);
+            out.writeInt(inHubs.length);
+            for (int node : order) {
+                out.writeInt(node);
+            }
+            writeLabels(out, outOffsets, outHubs, outDistances);
+            writeLabels(out, inOffsets, inHubs, inDistances);
+        }
+    }
+
+    /**
+     * Get the number of nodes of the graph.
+     * @return the number of nodes.
+     */
+    public int getNbVertices() {
+        return order.length;
+    }
+
+    /**
+     * Get the number of entries of all the labels.
+     * @return the number of entries.
+     */
+    public long getNbEntries() {
+        return (long) outHubs.length + inHubs.length;
+    }
+
+    /**
+     * Get the node of a hub.
+     * @param hub position of the hub in the order of importance.
+     * @return the id of the node.
+     */
+    public int getHubNode(int hub) {
+        return order[hub];
+    }
+
+    /**
+     * Get the shortest distance between two nodes.
+     * @param from id of the origin node.
+     * @param to id of the destination node.
+     * @return the distance, {@link #UNREACHED} if the destination can't be reached.
+     */
+    public long distance(int from, int to) {
+        long best = UNREACHED;
+        int i = outOffsets[from], outEnd = outOffsets[from + 1];
+        int j = inOffsets[to], inEnd = inOffsets[to + 1];
+        while (i < outEnd && j < inEnd) {
+            int outHub = outHubs[i], inHub = inHubs[j];
+            if (outHub == inHub) {
+                best = Math.min(best, outDistances[i++] + inDistances[j++]);
+            } else if (outHub < inHub) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the hub on a shortest path between two nodes.
+     * @param from id of the origin node.
+     * @param to id of the destination node.
+     * @return the position of the hub in the order of importance, -1 if the destination can't be reached.
+     */
+    public int meetingHub(int from, int to) {
+        long best = UNREACHED;
+        int bestHub = -1;
+        int i = outOffsets[from], outEnd = outOffsets[from + 1];
+        int j = inOffsets[to], inEnd = inOffsets[to + 1];
+        while (i < outEnd && j < inEnd) {
+            int outHub = outHubs[i], inHub = inHubs[j];
+            if (outHub == inHub) {
+                long distance = outDistances[i++] + inDistances[j++];
+                if (distance < best) {
+                    best = distance;
+                    bestHub = outHub;
+                }
+            } else if (outHub < inHub) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return bestHub;
+    }
+
+    /**
+     * @return the number of entries scanned by a query between two nodes.
+     */
+    int getLabelSizes(int from, int to) {
+        return outOffsets[from + 1] - outOffsets[from] + inOffsets[to + 1] - inOffsets[to];
+    }
+
+    private static void checkOrder(int[] order, int nbVertices) {
+        if (order.length != nbVertices) {
+            throw new IllegalArgumentException("The order must contain every node once");
+        }
+        boolean[] seen = new boolean[nbVertices];
+        for (int node : order) {
+            if (node < 0 || node >= nbVertices || seen[node]) {
+                throw new IllegalArgumentException("The order must contain every node once");
+            }
+            seen[node] = true;
+        }
+    }
+
+    private static void writeLabels(DataOutputStream out, int[] offsets, int[] hubs, long[] distances)
+            throws IOException {
+        for (int v = 0; v + 1 < offsets.length; v++) {
+            writeVarLong(out, offsets[v + 1] - offsets[v]);
+            int previous = 0;
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                writeVarLong(out, hubs[i] - previous);
+                writeVarLong(out, distances[i]);
+                previous = hubs[i];
+            }
+        }
+    }
+
+    private static void readLabels(DataInputStream in, int[] offsets, int[] hubs, long[] distances)
+            throws IOException {
+        for (int v = 0; v + 1 < offsets.length; v++) {
+            long size = readVarLong(in);
+            if (size > hubs.length - offsets[v]) {
+                throw new IllegalArgumentException("Invalid hub labels file: too many entries");
+            }
+            offsets[v + 1] = offsets[v] + (int) size;
+            int previous = 0;
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                hubs[i] = previous + (int) readVarLong(in);
+                distances[i] = readVarLong(in);
+                previous = hubs[i];
+            }
+        }
+        if (offsets[offsets.length - 1] != hubs.length) {
+            throw new IllegalArgumentException("Invalid hub labels file: missing entries");
+        }
+    }
+
+    /**
+     * Write a non-negative value 7 bits per byte, the high bit of a byte is set when more bytes follow.
+     */
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid hub labels file: variable-length value too long");
+    }
+
+    /**
+     * Labels of every node during the construction, one growable array per node.
+     */
+    private static class LabelSet {
+        private final int[][] hubs;
+        private final long[][] distances;
+        private final int[] sizes;
+        private long nbEntries;
+
+        private LabelSet(int nbVertices) {
+            this.hubs = new int[nbVertices][];
+            this.distances = new long[nbVertices][];
+            this.sizes = new int[nbVertices];
+            Arrays.fill(hubs, new int[0]);
+            Arrays.fill(distances, new long[0]);
+        }
+
+        /**
+         * Append an entry to the label of a node, the hub must be larger than the hubs of the label.
+         */
+        private void add(int node, int hub, long distance) {
+            int size = sizes[node];
+            if (size == hubs[node].length) {
+                hubs[node] = Arrays.copyOf(hubs[node], Math.max(4, 2 * size));
+                distances[node] = Arrays.copyOf(distances[node], hubs[node].length);
+            }
+            hubs[node][size] = hub;
+            distances[node][size] = distance;
+            sizes[node]++;
+            nbEntries++;
+        }
+
+        private int[] offsets() {
+            int[] offsets = new int[sizes.length + 1];
+            for (int v = 0; v < sizes.length; v++) {
+                offsets[v + 1] = Math.addExact(offsets[v], sizes[v]);
+            }
+            return offsets;
+        }
+
+        private int[] hubs() {
+            int[] flat = new int[Math.toIntExact(nbEntries)];
+            int next = 0;
+            for (int v = 0; v < sizes.length; v++) {
+                System.arraycopy(hubs[v], 0, flat, next, sizes[v]);
+                next += sizes[v];
+            }
+            return flat;
+        }
+
+        private long[] distances() {
+            long[] flat = new long[Math.toIntExact(nbEntries)];
+            int next = 0;
+            for (int v = 0; v < sizes.length; v++) {
+                System.arraycopy(distances[v], 0, flat, next, sizes[v]);
+                next += sizes[v];
+            }
+            return flat;
+        }
+    }
+
+    /**
+     * Dijkstra search from a hub that does not expand the nodes already covered by the labels of more important hubs.
+     */
+    private static class PrunedSearch {
+        /** Edges followed by the search. */
+        private final CompactAdjacency adjacency;
+        /** Distance of each node, {@link #UNREACHED} outside of the current search. */
+        private final long[] distance;
+        /** Distance between the root and each hub of its own label, {@link #UNREACHED} for the other hubs. */
+        private final long[] rootDistance;
+        /** Nodes reached by the current search. */
+        private final int[] reached;
+        private final DijkstraPriorityQueue queue;
+
+        private PrunedSearch(CompactAdjacency adjacency) {
+            int nbVertices = adjacency.getNVertices();
+            this.adjacency = adjacency;
+            this.distance = new long[nbVertices];
+            this.rootDistance = new long[nbVertices];
+            this.reached = new int[nbVertices];
+            this.queue = new DijkstraPriorityQueue(nbVertices);
+            Arrays.fill(distance, UNREACHED);
+            Arrays.fill(rootDistance, UNREACHED);
+        }
+
+        /**
+         * Add the root as a hub of the nodes it reaches.
+         * @param root id of the root node.
+         * @param hub position of the root in the order.
+         * @param rootLabels labels holding the label of the root facing the search.
+         * @param labels labels receiving the root as hub.
+         */
+        private void run(int root, int hub, LabelSet rootLabels, LabelSet labels) {
+            int[] rootHubs = rootLabels.hubs[root];
+            long[] rootDistances = rootLabels.distances[root];
+            for (int i = 0; i < rootLabels.sizes[root]; i++) {
+                rootDistance[rootHubs[i]] = rootDistances[i];
+            }
+            int nbReached = 0;
+            distance[root] = 0;
+            reached[nbReached++] = root;
+            queue.add(root, 0);
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                if (isCovered(node, labels)) {
+                    continue;
+                }
+                labels.add(node, hub, distance[node]);
+                for (int edge = adjacency.begin(node); edge < adjacency.end(node); edge++) {
+                    int successor = adjacency.target(edge);
+                    long newDistance = distance[node] + adjacency.weight(edge);
+                    if (newDistance < distance[successor]) {
+                        if (distance[successor] == UNREACHED) {
+                            reached[nbReached++] = successor;
+                        }
+                        distance[successor] = newDistance;
+                        queue.update(successor, newDistance);
+                    }
+                }
+            }
+            for (int i = 0; i < nbReached; i++) {
+                distance[reached[i]] = UNREACHED;
+            }
+            for (int i = 0; i < rootLabels.sizes[root]; i++) {
+                rootDistance[rootHubs[i]] = UNREACHED;
+            }
+        }
+
+        /**
+         * @return true if a more important hub already gives a distance no longer than the one of the search.
+         */
+        private boolean isCovered(int node, LabelSet labels) {
+            int[] hubs = labels.hubs[node];
+            long[] distances = labels.distances[node];
+            for (int i = 0; i < labels.sizes[node]; i++) {
+                long viaHub = rootDistance[hubs[i]];
+                if (viaHub != UNREACHED && viaHub + distances[i] <= distance[node]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}